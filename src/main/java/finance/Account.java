@@ -1,21 +1,140 @@
 package finance;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.json.simple.JSONObject;
 import org.json.simple.JSONArray;
 
 /**
  * Creates an Account object which contains a list of transactions created by a
- * user
+ * user.
+ * <p>
+ * An account is not locked by its own methods. Callers sharing an account
+ * between threads hold its {@link #getLock() lock} for reading while reading
+ * it, and for writing while adding or deleting transactions. Structures built
+ * on first use are built under the account's monitor, so any number of readers
+ * may build them at once
  *
  * @author Dylan Munro
  */
 public class Account {
 
-    private final LinkedList<Transaction> transactions = new LinkedList<>();   
+    //Public Constants
+    public static final int FIRST_PAGE = 0; //Cursor of the first page of transactions
+    public static final int NO_MORE_PAGES = -1; //Cursor returned after the last page
+
+    //Versions are unique across all accounts, so a version never matches another account's
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final TransactionList transactions = new TransactionList();
+    private final DateIndex dateIndex = new DateIndex();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private DailySpending dailySpending; //Built when the first date range is totalled
+    private Rollups rollups; //Built when the first summary is requested
+    private long[] itemQuantities; //Indexed by item name id, built when first requested
+    private TransactionSketch sketch; //Built when approximate statistics are first requested
     private final String name;
+    private volatile long version = nextVersion(); //Changed by every added or deleted transaction
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //Where the transactions of a lazily loaded account are read from, null once loaded
+    private volatile TransactionSource source;
+    private int numOfUnloadedTransactions;
+
+    /**
+     * Reads the transactions of an account which was loaded lazily
+     */
+    interface TransactionSource {
+
+        /**
+         * @return Every transaction of the account, in order
+         *
+         * @throws CorruptJSONObjectException
+         * @throws IOException
+         */
+        List<Transaction> load() throws CorruptJSONObjectException, IOException;
+    }
+
+    /**
+     * Keeps the highest ranked transactions matching an ordered query. The
+     * matches are held in a heap whose head is the lowest ranked match kept, so
+     * the first k of n matches are found in O(n log k) time and O(k) memory
+     */
+    private static final class RankedMatches {
+
+        private final Comparator<Transaction> order;
+        private final int limit;
+        private final PriorityQueue<Match> kept;
+
+        /**
+         * A matching transaction and its number
+         */
+        private static final class Match {
+
+            private final int number;
+            private final Transaction transaction;
+
+            private Match(int number, Transaction transaction) {
+                this.number = number;
+                this.transaction = transaction;
+            }
+        }
+
+        /**
+         * @param order The order of the query's results
+         * @param limit The largest number of matches kept
+         */
+        private RankedMatches(Comparator<Transaction> order, int limit) {
+            this.order = order;
+            this.limit = limit;
+            //Lowest ranked first: later in the order, or later in transaction order if equal
+            kept = new PriorityQueue<>((first, second) -> {
+                int comparison = order.compare(second.transaction, first.transaction);
+                return comparison != 0 ? comparison : Integer.compare(second.number, first.number);
+            });
+        }
+
+        /**
+         * Offers a match in O(log k). Matches must be offered in transaction
+         * order, so a match equal to the lowest ranked match kept ranks below it
+         *
+         * @param number The number of the matching transaction
+         * @param transaction The matching transaction
+         */
+        private void offer(int number, Transaction transaction) {
+            if (kept.size() < limit) {
+                kept.add(new Match(number, transaction));
+            } else if (limit > 0 && order.compare(transaction, kept.peek().transaction) < 0) {
+                kept.poll();
+                kept.add(new Match(number, transaction));
+            }
+        }
+
+        /**
+         * Sorts the matches kept in O(k log k)
+         *
+         * @return The numbers of the matches kept, highest ranked first
+         */
+        private int[] getNumbers() {
+            int[] numbers = new int[kept.size()];
+            for (int i = numbers.length - 1; i >= 0; i--) {
+                numbers[i] = kept.poll().number;
+            }
+            return numbers;
+        }
+    }
 
     /**
      * Creates an Account object given the name of the Account
@@ -26,6 +145,20 @@ public class Account {
         this.name = name;
     }
 
+    /**
+     * Creates an Account object whose transactions are only read once they
+     * are first needed
+     *
+     * @param name The name of the account
+     * @param source Reads the transactions of the account
+     * @param numOfTransactions The number of transactions the source will read
+     */
+    Account(String name, TransactionSource source, int numOfTransactions) {
+        this.name = name;
+        this.source = source;
+        this.numOfUnloadedTransactions = numOfTransactions;
+    }
+
     /**
      * Creates an Account object from its JSON representation
      *
@@ -44,7 +177,21 @@ public class Account {
      * @param transaction The transaction to be added
      */
     public void addTransaction(Transaction transaction) {
-        transactions.add(transaction);
+        ensureHydrated();
+        append(transaction);
+        version = nextVersion();
+    }
+
+    /**
+     * Adds a transaction to an account which is still being loaded. Nothing has
+     * read the account yet, so unlike {@link #addTransaction(Transaction)} the
+     * version is left as it was when the account was created, and loaders
+     * building accounts in parallel do not all update the shared version counter
+     *
+     * @param transaction The transaction to be added
+     */
+    void addLoadedTransaction(Transaction transaction) {
+        append(transaction);
     }
     
     /**
@@ -53,9 +200,32 @@ public class Account {
      * @return true if the account contains transactions, false otherwise
      */
     public boolean containsTransactions() {
-        return !transactions.isEmpty();
+        return getNumOfTransactions() != 0;
     }
     
+    /**
+     * @return A number which changes whenever a transaction is added to or
+     * deleted from the account, and which no other account ever has
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The lock held for reading while the account is read, and for
+     * writing while transactions are added or deleted
+     */
+    public ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @return A version number which has never been returned before
+     */
+    static long nextVersion() {
+        return VERSIONS.incrementAndGet();
+    }
+
     /**
      * Deletes a transaction from the account
      * 
@@ -66,32 +236,317 @@ public class Account {
      * @throws TransactionNotFoundException 
      */
     public String deleteTransaction(int transactionNumber) throws TransactionNotFoundException {
+        ensureHydrated();
         if (transactions.isEmpty()) {
             throw new TransactionNotFoundException(
                     "No transactions have been made on the account \"" + name + "\"");
-        } else if (transactionNumber > transactions.size()) {
+        } else if (transactionNumber < 1 || transactionNumber > transactions.size()) {
             throw new TransactionNotFoundException(transactionNumber);
         }
-        ListIterator<Transaction> iterator = transactions.listIterator();
-        
-        //transaction numbers start at 1, so i must start at 1
-        for (int i = 1; iterator.hasNext() && i <= transactionNumber; i++) {
-            iterator.next();
-            if (i == transactionNumber) {
-                iterator.remove();
-                return "Transaction " + transactionNumber + " has been removed";
-            }
+        //transaction numbers start at 1, so the list position is one less
+        int rowId = transactions.getRowId(transactionNumber - 1);
+        Transaction removed = transactions.remove(transactionNumber - 1);
+        version = nextVersion();
+        dateIndex.remove(epochDay(removed.getDate()), rowId);
+        categoryIndex.remove(removed.getItem().getCategory(), rowId, removed.getTotalCost());
+        if (dailySpending != null) {
+            dailySpending.remove(epochDay(removed.getDate()), removed.getTotalCost());
+        }
+        if (rollups != null) {
+            rollups.remove(removed);
+        }
+        if (itemQuantities != null) {
+            countItem(removed.getItem().getName(), -removed.getQuantity());
         }
-        throw new TransactionNotFoundException(transactionNumber);
+        if (sketch != null) {
+            sketch.remove(removed);
+        }
+        return "Transaction " + transactionNumber + " has been removed";
     }
 
     /**
      * Returns a list of all transactions which have happened in the account
      *
-     * @return The list of all transactions in the account
+     * @return An unmodifiable view of all transactions in the account
+     */
+    public List<Transaction> getTransactions() {
+        ensureHydrated();
+        return Collections.unmodifiableList(transactions);
+    }
+
+    /**
+     * Writes a page of the account's transactions, each followed by its
+     * transaction number.
+     * <p>
+     * A page starts at a cursor rather than a transaction number, so deleting
+     * transactions between pages neither repeats nor skips a transaction. The
+     * start of the page is found in O(log n) and each transaction is written as
+     * it is read, so the first transaction is written in O(log n) time and
+     * memory regardless of the page size
+     *
+     * @param out Where the transactions are written
+     * @param cursor {@link #FIRST_PAGE}, or the cursor returned for the previous page
+     * @param pageSize The largest number of transactions written
+     *
+     * @return The cursor of the next page, or {@link #NO_MORE_PAGES} if every
+     * remaining transaction was written
+     *
+     * @throws IOException
+     */
+    public int writeTransactions(Appendable out, int cursor, int pageSize) throws IOException {
+        ensureHydrated();
+        int index = transactions.indexOfRowAtLeast(cursor);
+        Iterator<Transaction> iterator = transactions.iterator(index);
+        for (int i = 0; i < pageSize && iterator.hasNext(); i++) {
+            //Transaction numbers start at 1, so they are one more than the position
+            out.append(iterator.next().toString()).append('\n')
+                    .append("Transaction Number: ").append(String.valueOf(++index)).append('\n');
+        }
+        return index < transactions.size() ? transactions.getRowId(index) : NO_MORE_PAGES;
+    }
+
+    /**
+     * Finds every transaction dated within a range using the account's date
+     * index, in O(log n) for the range and O(log n) for each transaction found
+     *
+     * @param startDate The first date in the range
+     * @param endDate The last date in the range
+     *
+     * @return The numbers of the transactions in the range ordered by date.
+     * Transaction numbers start at 1
+     */
+    public int[] getTransactionNumbersBetween(LocalDate startDate, LocalDate endDate) {
+        ensureHydrated();
+        int[] numbers = dateIndex.getRowIdsBetween(epochDay(startDate), epochDay(endDate));
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = transactions.indexOfRow(numbers[i]) + 1;
+        }
+        return numbers;
+    }
+
+    /**
+     * Counts the transactions dated within a range in O(log d), where d is the
+     * number of days spanned by the account's transactions
+     *
+     * @param startDate The first date in the range
+     * @param endDate The last date in the range
+     *
+     * @return The number of transactions in the range
+     */
+    public int getNumOfTransactionsBetween(LocalDate startDate, LocalDate endDate) {
+        return getDailySpending().getCount(epochDay(startDate), epochDay(endDate));
+    }
+
+    /**
+     * Totals the cost of the transactions dated within a range in O(log d),
+     * where d is the number of days spanned by the account's transactions
+     *
+     * @param startDate The first date in the range
+     * @param endDate The last date in the range
+     *
+     * @return The total cost of the transactions in the range in minor units
+     */
+    public long getTotalCostBetween(LocalDate startDate, LocalDate endDate) {
+        return getDailySpending().getTotalCost(epochDay(startDate), epochDay(endDate));
+    }
+
+    /**
+     * Finds the most expensive transactions of the account in O(n log k)
+     * without sorting the transactions
+     *
+     * @param k The largest number of transactions found
+     *
+     * @return The numbers of the k most expensive transactions, most expensive
+     * first. Transaction numbers start at 1
+     */
+    public int[] getLargestTransactionNumbers(int k) {
+        ensureHydrated();
+        int[] numbers = transactions.getLargestCostRowIds(k);
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = transactions.indexOfRow(numbers[i]) + 1;
+        }
+        return numbers;
+    }
+
+    /**
+     * The quantities are counted from every transaction when first requested,
+     * and are then kept up to date as transactions are added and deleted
+     *
+     * @return The total quantity purchased of each item, indexed by the
+     * {@link SymbolTable} id of the item's name
+     */
+    public long[] getItemQuantities() {
+        ensureHydrated();
+        synchronized (this) {
+            if (itemQuantities == null) {
+                itemQuantities = new long[0];
+                for (Transaction current : transactions) {
+                    countItem(current.getItem().getName(), current.getQuantity());
+                }
+            }
+            return itemQuantities.clone();
+        }
+    }
+
+    /**
+     * The sketches of an account are built from its transactions when
+     * approximate statistics are first requested, and are then kept up to date
+     * as transactions are added and deleted
+     *
+     * @return The approximate statistics of the account's transactions
      */
-    public LinkedList<Transaction> getTransactions() {
-        return transactions;
+    public TransactionSketch getSketch() {
+        ensureHydrated();
+        synchronized (this) {
+            if (sketch == null) {
+                TransactionSketch built = new TransactionSketch();
+                for (Transaction current : transactions) {
+                    built.add(current);
+                }
+                sketch = built;
+            }
+            return sketch;
+        }
+    }
+
+    /**
+     * Adds a range of the account's transactions to a spending report
+     *
+     * @param fromIndex The position of the first transaction, starting at 0
+     * @param toIndex The position after the last transaction
+     * @param report The report the transactions are added to
+     */
+    public void summarizeTransactions(int fromIndex, int toIndex, SpendingReport report) {
+        ensureHydrated();
+        transactions.summarize(fromIndex, toIndex, report);
+    }
+
+    /**
+     * The monthly and yearly summaries of an account are built from its
+     * transactions when first requested, and are then kept up to date as
+     * transactions are added and deleted
+     *
+     * @return The monthly and yearly summaries of the account's transactions
+     */
+    public Rollups getRollups() {
+        ensureHydrated();
+        synchronized (this) {
+            if (rollups == null) {
+                Rollups built = new Rollups();
+                for (Transaction current : transactions) {
+                    built.add(current);
+                }
+                rollups = built;
+            }
+            return rollups;
+        }
+    }
+
+    /**
+     * Finds every transaction in a category using the account's category index,
+     * in O(log n) for each transaction found
+     *
+     * @param category The name of the category
+     *
+     * @return The numbers of the transactions in the category in order.
+     * Transaction numbers start at 1
+     */
+    public int[] getTransactionNumbersInCategory(String category) {
+        ensureHydrated();
+        int[] numbers = categoryIndex.getRowIds(category);
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = transactions.indexOfRow(numbers[i]) + 1;
+        }
+        return numbers;
+    }
+
+    /**
+     * Finds the transactions satisfying a query. If the query bounds the date
+     * or requires a single category, only the transactions found by the
+     * smaller of the date and category indexes are tested; otherwise every
+     * transaction is tested
+     *
+     * @param query The compiled query
+     *
+     * @return The numbers of the matching transactions, in the order given by
+     * the query or else in transaction order, and at most the query's limit.
+     * Transaction numbers start at 1
+     */
+    public int[] getTransactionNumbersMatching(TransactionQuery query) {
+        ensureHydrated();
+        if (query.getStartDate().isAfter(query.getEndDate())) {
+            return new int[0];
+        }
+        int[] candidates = null; //Row ids, or null if every transaction is a candidate
+        if (!query.getStartDate().equals(LocalDate.MIN) || !query.getEndDate().equals(LocalDate.MAX)) {
+            candidates = dateIndex.getRowIdsBetween(epochDay(query.getStartDate()),
+                    epochDay(query.getEndDate()));
+        }
+        if (query.getCategory() != null) {
+            int[] inCategory = categoryIndex.getRowIds(query.getCategory());
+            candidates = candidates == null || inCategory.length < candidates.length
+                    ? inCategory : candidates;
+        }
+        //Without an order, matches are found in transaction order, so the limit ends the search early.
+        //With one, only the highest ranked matches within the limit are kept while every candidate is tested
+        RankedMatches ranked = query.getComparator() == null ? null
+                : new RankedMatches(query.getComparator(), query.getLimit());
+        int limit = ranked == null ? query.getLimit() : TransactionQuery.NO_LIMIT;
+        List<Integer> numbers = new ArrayList<>(); //Matches in transaction order if the query has no order
+        if (candidates == null) {
+            int number = 1;
+            for (Iterator<Transaction> iterator = transactions.iterator();
+                    iterator.hasNext() && numbers.size() < limit; number++) {
+                Transaction current = iterator.next();
+                if (ranked != null && query.test(current)) {
+                    ranked.offer(number, current);
+                } else if (ranked == null && query.test(current)) {
+                    numbers.add(number);
+                }
+            }
+        } else {
+            //Row ids increase with position, so sorted row ids are in transaction order
+            Arrays.sort(candidates);
+            for (int i = 0; i < candidates.length && numbers.size() < limit; i++) {
+                int index = transactions.indexOfRow(candidates[i]);
+                Transaction current = transactions.get(index);
+                if (ranked != null && query.test(current)) {
+                    ranked.offer(index + 1, current);
+                } else if (ranked == null && query.test(current)) {
+                    numbers.add(index + 1);
+                }
+            }
+        }
+        if (ranked != null) {
+            return ranked.getNumbers();
+        }
+        int[] result = new int[numbers.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = numbers.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the number of transactions and total cost of every category from
+     * running totals, in O(number of categories)
+     *
+     * @return The totals of every category used by the account's transactions
+     */
+    public List<CategoryIndex.CategoryTotal> getCategoryTotals() {
+        ensureHydrated();
+        return categoryIndex.getTotals();
+    }
+
+    /**
+     * Totals the fee multiplied by the quantity of every transaction in the
+     * account, exactly and without creating any objects
+     *
+     * @return The total cost of the account's transactions in minor units
+     */
+    public long getTotalCost() {
+        ensureHydrated();
+        return transactions.totalCost();
     }
 
     /**
@@ -105,7 +560,52 @@ public class Account {
      * @return The number of transactions currently stored on the account
      */
     public int getNumOfTransactions() {
-        return transactions.size();
+        return source == null ? transactions.size() : numOfUnloadedTransactions;
+    }
+
+    /**
+     * @return true if the transactions of the account have been read, false if
+     * the account was loaded lazily and its transactions are not yet needed
+     */
+    public boolean isHydrated() {
+        return source == null;
+    }
+
+    /**
+     * Reads the transactions of an account which was loaded lazily. Nothing
+     * happens if the transactions have already been read
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws IOException 
+     */
+    public void hydrate() throws CorruptJSONObjectException, IOException {
+        if (source == null) {
+            return;
+        }
+        synchronized (this) {
+            if (source == null) {
+                return; //Another reader loaded the transactions first
+            }
+            List<Transaction> loaded = source.load();
+            for (Transaction current : loaded) {
+                append(current);
+            }
+            source = null;
+        }
+    }
+
+    /**
+     * Reads the transactions of a lazily loaded account before they are used.
+     * Callers which can report errors should call {@link #hydrate()} first
+     */
+    private void ensureHydrated() {
+        try {
+            hydrate();
+        } catch (CorruptJSONObjectException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -121,8 +621,78 @@ public class Account {
         JSONObject currentTransactionJson;
         for (int i = 0; i < transactionsJSON.size(); i++) {
             currentTransactionJson = (JSONObject) transactionsJSON.get(i);
-            transactions.add(new Transaction(currentTransactionJson));
+            append(new Transaction(currentTransactionJson));
+        }
+    }
+
+    /**
+     * Stores a transaction and adds it to the date and category indexes
+     *
+     * @param transaction The transaction being stored
+     */
+    private void append(Transaction transaction) {
+        transactions.add(transaction);
+        int rowId = transactions.getLastRowId();
+        dateIndex.add(epochDay(transaction.getDate()), rowId);
+        categoryIndex.add(transaction.getItem().getCategory(), rowId, transaction.getTotalCost());
+        if (dailySpending != null) {
+            dailySpending.add(epochDay(transaction.getDate()), transaction.getTotalCost());
+        }
+        if (rollups != null) {
+            rollups.add(transaction);
+        }
+        if (itemQuantities != null) {
+            countItem(transaction.getItem().getName(), transaction.getQuantity());
+        }
+        if (sketch != null) {
+            sketch.add(transaction);
+        }
+    }
+
+    /**
+     * Adds to the quantity purchased of an item
+     *
+     * @param itemName The name of the item
+     * @param quantity The change in the quantity purchased
+     */
+    private void countItem(String itemName, int quantity) {
+        int id = SymbolTable.getGlobal().idOf(itemName);
+        if (id >= itemQuantities.length) {
+            itemQuantities = Arrays.copyOf(itemQuantities, Math.max(id + 1, itemQuantities.length * 2));
         }
+        itemQuantities[id] += quantity;
+    }
+
+    /**
+     * The daily spending of an account is only built once a date range is
+     * first totalled, so accounts which are never queried do not pay for it
+     *
+     * @return The prefix sums of the account's spending on each day
+     */
+    private DailySpending getDailySpending() {
+        ensureHydrated();
+        synchronized (this) {
+            if (dailySpending == null) {
+                int[] epochDays = new int[transactions.size()];
+                long[] costs = new long[epochDays.length];
+                int i = 0;
+                for (Transaction current : transactions) {
+                    epochDays[i] = epochDay(current.getDate());
+                    costs[i++] = current.getTotalCost();
+                }
+                dailySpending = new DailySpending(epochDays, costs);
+            }
+            return dailySpending;
+        }
+    }
+
+    /**
+     * @param date A date
+     *
+     * @return The epoch day of the date, clamped to the dates a transaction may have
+     */
+    private static int epochDay(LocalDate date) {
+        return Transaction.epochDay(date);
     }
 
     /**
@@ -130,7 +700,7 @@ public class Account {
      */
     @Override
     public String toString() {
-        ListIterator<Transaction> iterator = transactions.listIterator();
+        Iterator<Transaction> iterator = getTransactions().iterator();
         StringBuilder returnedString = new StringBuilder();
         returnedString.append(name).append("\n");
         int i = 0;
@@ -1,8 +1,32 @@
 package finance;
 
 //Imports
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -13,14 +37,38 @@ import org.json.simple.JSONObject;
  */
 public class AccountManager {
 
-    private final HashMap<String, Account> namesToAccounts = new HashMap<String, Account>();
-    private Account activeAccount;
-    private int numOfAccountsLoaded;
+    //Private Constants
+    private static final String SNAPSHOT_FILE = "accounts.snap";
+    private static final String JOURNAL_FILE = "journal.bin";
+    private static final long COMPACTION_THRESHOLD = 16 * 1024 * 1024; //Journal bytes before compaction
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final int TOP_CATEGORIES = 3; //Categories listed in each summary
+    private static final long DEFAULT_SESSION_ID = 0;
+    private static final long REPLAY_SESSION_ID = -1; //Never given to a client
+
+    private final ConcurrentHashMap<String, Account> namesToAccounts = new ConcurrentHashMap<>();
+    private final Session defaultSession = new Session(DEFAULT_SESSION_ID); //Used by requests made without a session
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSessionId = new AtomicLong(DEFAULT_SESSION_ID + 1);
+    private volatile int numOfAccountsLoaded;
+
+    //Held for reading by every request, and for writing while accounts are added,
+    //deleted, or loaded, or while a snapshot is written. Each account has its own
+    //lock, so requests on different accounts never wait on each other
+    private final ReentrantReadWriteLock accountsLock = new ReentrantReadWriteLock();
+    private final Object rollupsLock = new Object(); //Guards rollups, which every account updates
+    private Rollups rollups; //Summaries of every account, null until first requested
+    private final ResultCache resultCache = new ResultCache();
+    private volatile long version = Account.nextVersion(); //Changed by every request which modifies accounts
+    private volatile RequestJournal journal;
+    private Path journalDirectory;
+    private ScheduledExecutorService compactor;
 
     /**
      * Creates a new account with details specified from request. This new
-     * account is set to be the active account
+     * account is set to be the active account of the session
      *
+     * @param session The session making the request
      * @param request Request object containing all information for account
      * creation
      * 
@@ -28,7 +76,7 @@ public class AccountManager {
      * 
      * @throws AccountException
      */
-    private String executeAddAccountRequest(AccountRequest request) 
+    private String executeAddAccountRequest(Session session, AccountRequest request) 
         throws AccountException{
         String accountName = request.getAccountName();
         if (namesToAccounts.containsKey(accountName)) {
@@ -37,7 +85,7 @@ public class AccountManager {
         }
         Account account = new Account(accountName);
         namesToAccounts.put(account.getName(), account);
-        activeAccount = account;
+        session.setActiveAccount(account);
         numOfAccountsLoaded++;
         return "New account created with the name " + accountName + "."
                 + "\n" + accountName + " is now the active account.";
@@ -46,6 +94,7 @@ public class AccountManager {
     /**
      * Handles execution of requests to add a transaction to the current active account
      * 
+     * @param account The account the request acts on, or null if no account is selected
      * @param request Request object containing sufficient information to create
      * a transaction
      * 
@@ -53,34 +102,45 @@ public class AccountManager {
      * 
      * @throws AccountException 
      */
-    private String executeAddTransactionRequest(TransactionRequest request) 
+    private String executeAddTransactionRequest(Account account, TransactionRequest request) 
         throws AccountException {
-        if (activeAccount == null) {
+        if (account == null) {
             throw new AccountException("Please select an active account before making a transaciton");
         }
-        activeAccount.addTransaction(new Transaction(request.getItemName(), request.getItemFee(),
-            request.getItemCategory(), request.getDate(), request.getQuantity()));
-        return "The transaction has been added to the account \"" + activeAccount.getName() + "\"";
+        SymbolTable symbols = SymbolTable.getGlobal();
+        Transaction transaction = new Transaction(symbols.intern(request.getItemName()),
+            request.getItemFee(), symbols.intern(request.getItemCategory()), request.getDate(),
+            request.getQuantity());
+        account.addTransaction(transaction);
+        synchronized (rollupsLock) {
+            if (rollups != null) {
+                rollups.add(transaction);
+            }
+        }
+        return "The transaction has been added to the account \"" + account.getName() + "\"";
     }
     
     /**
-     * Handles execution of requests to change the active account
+     * Handles execution of requests to change the active account of a session
      * 
+     * @param session The session making the request
      * @param request The request containing the details of the new active account
      * 
      * @return A message informing the user of the new active account
      * 
      * @throws AccountException
      */
-    private String executeChangeAccountRequest(AccountRequest request) throws AccountException {
+    private String executeChangeAccountRequest(Session session, AccountRequest request)
+            throws AccountException {
         String activeAccountName = request.getAccountName();
-        setActiveAccount(activeAccountName);
+        setActiveAccount(session, activeAccountName);
         return activeAccountName + " is now the active account.";
     }
     
      /**
      * Handles execution of requests to delete accounts
      * 
+     * @param session The session making the request
      * @param request The request containing all necessary specifications for 
      * account creation
      * 
@@ -88,7 +148,8 @@ public class AccountManager {
      * 
      * @throws AccountException 
      */
-    private String executeDeleteAccountRequest(AccountRequest request) throws AccountException {
+    private String executeDeleteAccountRequest(Session session, AccountRequest request)
+            throws AccountException {
         StringBuilder returnedString = new StringBuilder();
         if (namesToAccounts.isEmpty()) {
             throw new AccountException("There are currently no accounts loaded");
@@ -97,14 +158,19 @@ public class AccountManager {
             throw new AccountException("The account \""
                     + request.getAccountName() + "\" does not exist");
         }
-        if (namesToAccounts.get(request.getAccountName()).equals(activeAccount)) {
-            activeAccount = null;
+        Account account = namesToAccounts.get(request.getAccountName());
+        if (account.equals(session.getActiveAccount())) {
+            session.setActiveAccount(null); //Other sessions find their account is gone when next used
+        }
+        if (rollups != null) {
+            hydrate(account);
+            rollups.removeAll(account.getRollups());
         }
         namesToAccounts.remove(request.getAccountName());
         numOfAccountsLoaded--;
         returnedString.append("The account \"").append(request.getAccountName()).append("\" has been deleted.");
         if (numOfAccountsLoaded == 1) {
-            setActiveAccount(namesToAccounts.entrySet().iterator().next().getKey());
+            setActiveAccount(session, namesToAccounts.entrySet().iterator().next().getKey());
         }
         return returnedString.toString();
     }
@@ -128,207 +194,1868 @@ public class AccountManager {
      * Handles execution of requests to display all transactions in the current
      * active account. Generates a string containing details of every transaction.
      * 
+     * @param account The account the request acts on, or null if no account is selected
      * @return String containing the details of every transaction on the account
      * 
      * @throws AccountException
      * @throws TransactionNotFoundException
      */  
-    private String executeDisplayTransactionRequest() throws
+    private String executeDisplayTransactionRequest(Account account) throws
             AccountException, TransactionNotFoundException {
-        if (activeAccount == null) {
-            throw new AccountException("No active account selected");
-        } else if (!activeAccount.containsTransactions()) {
-            throw new TransactionNotFoundException(
-                    "No transactions have been made on the account.");
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTransactions(account, sb, Account.FIRST_PAGE, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //A StringBuilder is never closed
         }
+        return sb.toString();
+    }
+
+    /**
+     * Handles execution of requests to display a page of the transactions in
+     * the current active account
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the cursor and size of the page
+     * 
+     * @return String containing the details of every transaction in the page,
+     * followed by the cursor of the next page
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */
+    private String executeDisplayTransactionPageRequest(Account account, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException {
         StringBuilder sb = new StringBuilder();
-        int currentNum = 1; 
-        //Start at 1 because transactions start at 1, not 0 
-        //(Ex: The 0th transaction doesn't exist)
-        for (Transaction current : activeAccount.getTransactions()) {
-            sb.append(current.toString()).append("\n");
-            sb.append("Transaction Number: ").append(currentNum).append("\n");
-            currentNum++;
+        try {
+            writeTransactionPage(account, sb, request);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //A StringBuilder is never closed
         }
         return sb.toString();
     }
 
     /**
-     * Handles execution of requests to delete a transaction from the current
-     * active account
+     * Writes a page of the transactions in the current active account, followed
+     * by the cursor of the next page
      * 
-     * @param request The request containing the number of the transaction to delete
+     * @param account The account the request acts on, or null if no account is selected
+     * @param out Where the page is written
+     * @param request The request containing the cursor and size of the page
      * 
-     * @return Message informing the user that transaction deletion was successful
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     * @throws IOException 
+     */
+    private void writeTransactionPage(Account account, Appendable out, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException, IOException {
+        int nextCursor = writeTransactions(account, out, request.getCursor(), request.getPageSize());
+        out.append(nextCursor == Account.NO_MORE_PAGES ? "There are no more transactions\n"
+                : "Cursor of the next page: " + nextCursor + "\n");
+    }
+
+    /**
+     * Writes a page of the transactions in the current active account as each
+     * transaction is read
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param out Where the transactions are written
+     * @param cursor {@link Account#FIRST_PAGE}, or the cursor of a following page
+     * @param pageSize The largest number of transactions written
+     * 
+     * @return The cursor of the next page, or {@link Account#NO_MORE_PAGES}
      * 
      * @throws AccountException
      * @throws TransactionNotFoundException
-     */    
-    private String executeDeleteTransactionRequest(TransactionRequest request) throws 
+     * @throws IOException 
+     */
+    private int writeTransactions(Account account, Appendable out, int cursor, int pageSize) throws
+            AccountException, TransactionNotFoundException, IOException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        }
+        hydrate(account);
+        if (!account.containsTransactions()) {
+            throw new TransactionNotFoundException(
+                    "No transactions have been made on the account.");
+        }
+        return account.writeTransactions(out, cursor, pageSize);
+    }
+
+    /**
+     * Handles execution of requests to display the transactions of the current
+     * active account in a single category, found with the account's category index
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the category
+     * 
+     * @return String containing the details of every transaction in the category
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */
+    private String executeDisplayTransactionCategoryRequest(Account account, TransactionRequest request) throws
             AccountException, TransactionNotFoundException {
-        int transactionNumber = request.getTransactionNumber();
-        if (activeAccount == null) {
+        if (account == null) {
             throw new AccountException("No active account selected");
-        } 
-        activeAccount.deleteTransaction(transactionNumber);
-        return "Transaction number \"" + transactionNumber + "\" has been deleted";
+        }
+        hydrate(account);
+        int[] transactionNumbers = account.getTransactionNumbersInCategory(
+                request.getItemCategory());
+        if (transactionNumbers.length == 0) {
+            throw new TransactionNotFoundException("No transactions in the category \""
+                    + request.getItemCategory() + "\" have been made on the account");
+        }
+        return describeTransactions(account, transactionNumbers);
     }
 
     /**
-     * Handles execution of requests to quit the program
+     * Handles execution of requests to display the spending of the current
+     * active account by category. The report is built from the running totals
+     * of the account's category index, without visiting any transaction
      * 
-     * @return A message thanking the user for using the program
+     * @param account The account the request acts on, or null if no account is selected
+     * @return String containing the number of transactions and total cost of
+     * every category
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
      */
-    private String executeQuitRequest() {
-        return "Thank you for using Finance Manager!";
+    private String executeDisplaySpendingRequest(Account account) throws
+            AccountException, TransactionNotFoundException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        }
+        hydrate(account);
+        List<CategoryIndex.CategoryTotal> totals = account.getCategoryTotals();
+        if (totals.isEmpty()) {
+            throw new TransactionNotFoundException(
+                    "No transactions have been made on the account.");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (CategoryIndex.CategoryTotal current : totals) {
+            sb.append(current.toString()).append("\n\n");
+        }
+        return sb.toString();
     }
 
     /**
-     * Manages execution of a request object to modify an account
+     * Describes a group of transactions of the current active account
      * 
-     * @param request Request to be executed
+     * @param account The account the transactions belong to
+     * @param transactionNumbers The numbers of the transactions, starting at 1
      * 
-     * @return Output text of the request
+     * @return String containing the details and number of every transaction
+     */
+    private String describeTransactions(Account account, int[] transactionNumbers) {
+        List<Transaction> transactions = account.getTransactions();
+        StringBuilder sb = new StringBuilder();
+        for (int current : transactionNumbers) {
+            sb.append(transactions.get(current - 1).toString()).append("\n");
+            sb.append("Transaction Number: ").append(current).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Handles execution of requests to display the transactions of the current
+     * active account between two dates. The transactions are found with the
+     * account's date index and listed in date order
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the range of dates
+     * 
+     * @return String containing the details of every transaction in the range
      * 
      * @throws AccountException
-     * @throws InvalidRequestException
-     * @throws TransactionNotFoundException 
+     * @throws TransactionNotFoundException
      */
-    public String executeRequest(Request request)
-            throws AccountException, InvalidRequestException, TransactionNotFoundException {
-        String output = "";
-        switch (request.getAction()) {
-            case "add account":
-                output = executeAddAccountRequest((AccountRequest)request);
-                break;
-            case "add transaction":
-                output = executeAddTransactionRequest((TransactionRequest)request);
-                break;
-            case "change account":
-                output = executeChangeAccountRequest((AccountRequest)request);
-                break;
-            case "delete account":
-                output = executeDeleteAccountRequest((AccountRequest)request);
-                break;
-            case "delete transaction":
-                output = executeDeleteTransactionRequest((TransactionRequest)request);
-                break;
-            case "display account":
-                output = executeDisplayAccountRequest();
-                break;
-            case "display transaction":
-                output = executeDisplayTransactionRequest();
-                break;
-            case "help":
-                output = getHelp();
-                break;
-            case "quit":
-                output = executeQuitRequest();
-                break;
-            default:
-                throw new InvalidRequestException("The request \"" + request.getAction()
-                        + "\" is not recognized");
+    private String executeDisplayTransactionRangeRequest(Account account, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
         }
-        return output;
+        hydrate(account);
+        int[] transactionNumbers = account.getTransactionNumbersBetween(
+                request.getStartDate(), request.getEndDate());
+        if (transactionNumbers.length == 0) {
+            throw new TransactionNotFoundException("No transactions were made on the account between "
+                    + request.getStartDate() + " and " + request.getEndDate());
+        }
+        return describeTransactions(account, transactionNumbers);
     }
 
     /**
-     * Creates various Accounts from a JSONObject representation
-     *
-     * @param obj JSONObject containing details necessary for account creation
-     * @throws CorruptJSONObjectException
+     * Handles execution of requests to display the most expensive transactions
+     * of the current active account or of every account. Each account ranks
+     * its own transactions with a bounded heap, and the candidates of every
+     * account are ranked again with another, so no list of transactions is sorted
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the number of transactions and
+     * the accounts ranked
+     * 
+     * @return String containing the details of the most expensive transactions,
+     * most expensive first
+     * 
      * @throws AccountException
+     * @throws TransactionNotFoundException
      */
-    public void generateAccounts(JSONObject obj) throws
-            CorruptJSONObjectException, AccountException {
-        Account currentAccount;
-        JSONArray accountsArray;
-        try {
-            accountsArray = (JSONArray) obj.get("accounts");           
-        } catch (Exception e) {
-            throw new CorruptJSONObjectException("The JSON file is corrupted and could not be parsed");
+    private String executeDisplayLargestTransactionsRequest(Account account, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException {
+        int count = request.getCount();
+        if (!request.isAllAccounts()) {
+            if (account == null) {
+                throw new AccountException("No active account selected");
+            }
+            hydrate(account);
+            if (!account.containsTransactions()) {
+                throw new TransactionNotFoundException(
+                        "No transactions have been made on the account.");
+            }
+            return describeTransactions(account, account.getLargestTransactionNumbers(count));
         }
-        for (int i = 0; i < accountsArray.size(); i++) {
-            currentAccount = new Account((JSONObject) accountsArray.get(i));
-            numOfAccountsLoaded++;
-            namesToAccounts.put(currentAccount.getName(), currentAccount);
-            if (accountsArray.size() == 1) {
-                setActiveAccount(currentAccount.getName());
+        List<Account> owners = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        List<Account> accounts = getAccountsByName();
+        long numOfCandidates = 0;
+        for (Account current : accounts) {
+            numOfCandidates += Math.min(count, current.getNumOfTransactions());
+        }
+        BoundedHeap heap = new BoundedHeap((int) Math.min(count, numOfCandidates));
+        for (Account current : accounts) {
+            List<Transaction> transactions = current.getTransactions();
+            for (int number : current.getLargestTransactionNumbers(count)) {
+                heap.offer(transactions.get(number - 1).getTotalCost(), numbers.size());
+                owners.add(current);
+                numbers.add(number);
             }
         }
+        if (heap.size() == 0) {
+            throw new TransactionNotFoundException("No transactions have been made on any account.");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int candidate : heap.getValues()) {
+            Account owner = owners.get(candidate);
+            int number = numbers.get(candidate);
+            sb.append("Account: ").append(owner.getName()).append("\n");
+            sb.append(owner.getTransactions().get(number - 1).toString()).append("\n");
+            sb.append("Transaction Number: ").append(number).append("\n");
+        }
+        return sb.toString();
     }
 
     /**
+     * Handles execution of requests to display the most frequently bought items
+     * of the current active account or of every account. Quantities are kept up
+     * to date by each account and ranked with a bounded heap
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the number of items and the
+     * accounts ranked
+     * 
+     * @return String containing the items bought in the largest quantities,
+     * most frequently bought first
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */
+    private String executeDisplayFrequentItemsRequest(Account account, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException {
+        long[] quantities = new long[0];
+        List<Account> accounts = new ArrayList<>();
+        if (!request.isAllAccounts()) {
+            if (account == null) {
+                throw new AccountException("No active account selected");
+            }
+            hydrate(account);
+            accounts.add(account);
+        } else {
+            accounts = getAccountsByName();
+        }
+        for (Account current : accounts) {
+            long[] accountQuantities = current.getItemQuantities();
+            if (accountQuantities.length > quantities.length) {
+                quantities = Arrays.copyOf(quantities, accountQuantities.length);
+            }
+            for (int i = 0; i < accountQuantities.length; i++) {
+                quantities[i] += accountQuantities[i];
+            }
+        }
+        int numOfItems = 0;
+        for (long quantity : quantities) {
+            if (quantity > 0) {
+                numOfItems++;
+            }
+        }
+        BoundedHeap heap = new BoundedHeap(Math.min(request.getCount(), numOfItems));
+        for (int i = 0; i < quantities.length; i++) {
+            if (quantities[i] > 0) {
+                heap.offer(quantities[i], i);
+            }
+        }
+        if (heap.size() == 0) {
+            throw new TransactionNotFoundException("No items have been bought.");
+        }
+        SymbolTable symbols = SymbolTable.getGlobal();
+        StringBuilder sb = new StringBuilder();
+        for (int id : heap.getValues()) {
+            sb.append(symbols.get(id)).append(": ").append(quantities[id]).append(" bought\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads the transactions of every account which was loaded lazily
+     * 
+     * @return Every loaded account, ordered by name
      * 
-     * @return Set containing all account names loaded in the account manager
      * @throws AccountException 
      */
-    public Set<String> getAccountNames() throws AccountException {
-        if (namesToAccounts.isEmpty()) {
-            throw new AccountException("No accounts are currently loaded");
+    private List<Account> getAccountsByName() throws AccountException {
+        List<Account> accounts = new ArrayList<>();
+        for (String current : new TreeSet<>(namesToAccounts.keySet())) {
+            Account account = namesToAccounts.get(current);
+            hydrate(account);
+            accounts.add(account);
         }
-        return namesToAccounts.keySet();
+        return accounts;
     }
 
     /**
-     *
-     * @return Name of the active account
+     * Handles execution of requests to search the transactions of the current
+     * active account with a query
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the compiled query
+     * 
+     * @return String containing the details of every matching transaction
      * 
      * @throws AccountException
+     * @throws TransactionNotFoundException
      */
-    public String getActiveAccountName() throws AccountException {
-        if (activeAccount == null) {
-            throw new AccountException("No account is currently selected");
+    private String executeQueryTransactionRequest(Account account, TransactionRequest request) throws
+            AccountException, TransactionNotFoundException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        }
+        hydrate(account);
+        int[] transactionNumbers = account.getTransactionNumbersMatching(request.getQuery());
+        if (transactionNumbers.length == 0) {
+            throw new TransactionNotFoundException("No transactions on the account match the query "
+                    + request.getQuery());
         }
-        return activeAccount.getName();
+        return describeTransactions(account, transactionNumbers);
     }
-    
+
     /**
+     * Handles execution of requests to total the transactions of the current
+     * active account between two dates, using the account's daily prefix sums
+     * instead of visiting the transactions
      * 
-     * @return Number of accounts currently loaded in the account manager
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the range of dates
+     * 
+     * @return String containing the number and total cost of the transactions in the range
+     * 
+     * @throws AccountException
      */
-    public int getNumOfAccountsLoaded() {
-        return numOfAccountsLoaded;
+    private String executeDisplayTransactionTotalRequest(Account account, TransactionRequest request) throws
+            AccountException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        }
+        hydrate(account);
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+        return "Transactions between " + startDate + " and " + endDate + ": "
+                + account.getNumOfTransactionsBetween(startDate, endDate)
+                + "\nTotal spent: "
+                + Money.toString(account.getTotalCostBetween(startDate, endDate));
     }
 
     /**
-     *
-     * @return A list of useful commands for executing the program
+     * Handles execution of requests to summarize spending by month or by year.
+     * The summaries are read from rollups which are kept up to date as
+     * transactions change, so no transaction is visited
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param isMonthly true to summarize each month, false to summarize each year
+     * 
+     * @return String containing the summaries of the current active account,
+     * if any, followed by the summaries of every account
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
      */
-    public static String getHelp() {
-        StringBuilder sb = new StringBuilder();
-        HashMap<String, String> map1 = Request.getONE_PARAM_ACTION_DESCRIPTIONS();
-        HashMap<String, String> map2 = Request.getTWO_PARAM_ACTION_DESCRIPTIONS();
-        for (HashMap.Entry<String, String> current : map1.entrySet()) {
-            sb.append("Type \"").append(current.getKey()).append("\" to ").append(current.getValue()).append("\n");
+    private String executeDisplaySummaryRequest(Account account, boolean isMonthly) throws
+            AccountException, TransactionNotFoundException {
+        Rollups allSummaries = getRollups();
+        if (allSummaries.getYears().isEmpty()) {
+            throw new TransactionNotFoundException("No transactions have been made on any account.");
         }
-        for (HashMap.Entry<String, String> current : map2.entrySet()) {
-            sb.append("Type \"").append(current.getKey()).append("\" to ").append(current.getValue()).append("\n");
+        StringBuilder sb = new StringBuilder();
+        if (account != null) {
+            sb.append("Account \"").append(account.getName()).append("\"\n");
+            describeSummaries(sb, account.getRollups(), isMonthly);
         }
+        sb.append("All accounts\n");
+        describeSummaries(sb, allSummaries, isMonthly);
         return sb.toString();
     }
-    
+
     /**
+     * Handles execution of requests to display estimated statistics of the
+     * current active account, read from sketches kept up to date as
+     * transactions change
      * 
-     * @return true if there is currently an active account in the account manager,
-     * false otherwise
+     * @param account The account the request acts on, or null if no account is selected
+     * @return String containing the number of distinct items, fee percentiles,
+     * and most common categories, with their error bounds
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
      */
-    public boolean hasActiveAccount() {
-        return activeAccount != null;
+    private String executeDisplayApproximateStatsRequest(Account account) throws
+            AccountException, TransactionNotFoundException {
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        }
+        hydrate(account);
+        if (!account.containsTransactions()) {
+            throw new TransactionNotFoundException(
+                    "No transactions have been made on the account.");
+        }
+        return account.getSketch().toString();
     }
 
     /**
-     * Changes the active account in the account manager
+     * Handles execution of requests to total the spending of every loaded
+     * account, using the common fork-join pool. Every account is already locked
+     * for reading by {@link #executeRequest(Session, String, Request)}
      * 
-     * @param accountName The name of the account becoming the active account
+     * @return String containing the number and total cost of every transaction,
+     * followed by the totals of each category and month
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */
+    private String executeDisplayAllSpendingRequest() throws
+            AccountException, TransactionNotFoundException {
+        SpendingReport report = summarizeAccounts(ForkJoinPool.commonPool());
+        if (report.getNumOfTransactions() == 0) {
+            throw new TransactionNotFoundException("No transactions have been made on any account.");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Describes every monthly or yearly summary of a group of transactions
+     * 
+     * @param sb The builder the summaries are appended to
+     * @param summaries The rollups of the transactions
+     * @param isMonthly true to describe each month, false to describe each year
+     */
+    private void describeSummaries(StringBuilder sb, Rollups summaries, boolean isMonthly) {
+        Map<?, Rollups.Summary> periods = isMonthly ? summaries.getMonths() : summaries.getYears();
+        for (Map.Entry<?, Rollups.Summary> period : periods.entrySet()) {
+            Rollups.Summary summary = period.getValue();
+            sb.append(period.getKey()).append(": ").append(summary.getNumOfTransactions())
+                    .append(" transactions, ").append(Money.toString(summary.getTotalCost()))
+                    .append(" spent\n");
+            for (String category : summary.getTopCategories(TOP_CATEGORIES)) {
+                sb.append("    ").append(category).append(": ")
+                        .append(Money.toString(summary.getCategoryCost(category))).append("\n");
+            }
+        }
+        sb.append("\n");
+    }
+
+    /**
+     * Gets the monthly and yearly summaries of every account, building them from
+     * the summaries of each account when first needed. Afterwards they are
+     * updated as transactions and accounts are added and deleted. Every
+     * account must be locked for reading
+     * 
+     * @return The summaries of every loaded account
      * 
      * @throws AccountException 
      */
-    private void setActiveAccount(String accountName) throws AccountException {
-        if (!namesToAccounts.containsKey(accountName)) {
-            throw new AccountException("The account " + accountName
-                    + " is not recognized");
+    private Rollups getRollups() throws AccountException {
+        synchronized (rollupsLock) {
+            if (rollups == null) {
+                Rollups built = new Rollups();
+                for (Account current : namesToAccounts.values()) {
+                    hydrate(current);
+                    built.addAll(current.getRollups());
+                }
+                rollups = built;
+            }
+            return rollups;
+        }
+    }
+
+    /**
+     * Handles execution of requests to delete a transaction from the current
+     * active account
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request The request containing the number of the transaction to delete
+     * 
+     * @return Message informing the user that transaction deletion was successful
+     * 
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */    
+    private String executeDeleteTransactionRequest(Account account, TransactionRequest request) throws 
+            AccountException, TransactionNotFoundException {
+        int transactionNumber = request.getTransactionNumber();
+        if (account == null) {
+            throw new AccountException("No active account selected");
+        } 
+        hydrate(account);
+        List<Transaction> transactions = account.getTransactions();
+        Transaction removed = transactionNumber >= 1 && transactionNumber <= transactions.size()
+                ? transactions.get(transactionNumber - 1) : null;
+        account.deleteTransaction(transactionNumber);
+        synchronized (rollupsLock) {
+            if (rollups != null) {
+                rollups.remove(removed);
+            }
+        }
+        return "Transaction number \"" + transactionNumber + "\" has been deleted";
+    }
+
+    /**
+     * Handles execution of requests to save every account to a file. Every
+     * account is already locked for reading by
+     * {@link #executeRequest(Session, String, Request)}
+     * 
+     * @param request The request containing the path of the file
+     * 
+     * @return Message informing the user that the accounts were saved
+     * 
+     * @throws AccountException 
+     */
+    private String executeSaveRequest(SaveRequest request) throws AccountException {
+        try {
+            new AccountWriter().write(namesToAccounts.values(), Paths.get(request.getFilePath()));
+        } catch (IOException | InvalidPathException e) {
+            throw new AccountException("The accounts could not be saved to \""
+                    + request.getFilePath() + "\": " + e.getMessage());
+        }
+        return "All accounts have been saved to \"" + request.getFilePath() + "\"";
+    }
+
+    /**
+     * Handles execution of requests to quit the program
+     * 
+     * @return A message thanking the user for using the program
+     */
+    private String executeQuitRequest() {
+        return "Thank you for using Finance Manager!";
+    }
+
+    /**
+     * Manages execution of a request object to modify an account.
+     * <p>
+     * If a journal is open, requests which modify accounts are recorded in the
+     * journal before this method returns. Requests may be executed by many
+     * threads at once
+     * 
+     * @param request Request to be executed
+     * 
+     * @return Output text of the request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public String executeRequest(Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeRequest(defaultSession, null, request);
+    }
+
+    /**
+     * Executes a request in a session, acting on the session's active account.
+     * Requests which select an account only change the session's active account
+     * 
+     * @param session The session making the request
+     * @param request Request to be executed
+     * 
+     * @return Output text of the request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public String executeRequest(Session session, Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeRequest(session, null, request);
+    }
+
+    /**
+     * Executes a request on a named account instead of the active account, so
+     * threads working on different accounts do not depend on the active
+     * account. Requests which select an account still change the active account
+     * 
+     * @param accountName The account the request reads or modifies
+     * @param request Request to be executed
+     * 
+     * @return Output text of the request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public String executeRequest(String accountName, Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeRequest(defaultSession, accountName, request);
+    }
+
+    /**
+     * Executes a request, recording it in the journal if it modifies accounts
+     * 
+     * @param session The session making the request
+     * @param accountName The account the request reads or modifies, or null
+     * for the active account of the session
+     * @param request Request to be executed
+     * 
+     * @return Output text of the request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    private String executeRequest(Session session, String accountName, Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        String output;
+        RequestJournal current = null;
+        long journalPosition = -1;
+        Lock managerLock = isStructural(request) ? accountsLock.writeLock() : accountsLock.readLock();
+        List<Lock> locks = new ArrayList<>();
+        managerLock.lock();
+        try {
+            Account account = findAccount(session, accountName);
+            lockAccounts(request, account, locks);
+            String key = cacheKey(account, request);
+            long cachedVersion = key == null ? 0 : versionRead(account, request);
+            output = key == null ? null : resultCache.get(key, cachedVersion);
+            if (output != null) {
+                return output;
+            }
+            //The request is encoded before it is executed, so a request which
+            //cannot be journaled never changes the accounts
+            current = journal;
+            byte[] record = null;
+            if (current != null && RequestJournal.isJournaled(request)) {
+                try {
+                    record = RequestJournal.encode(account == null ? null : account.getName(), request);
+                } catch (IOException e) {
+                    throw new AccountException("The request could not be written to the journal: "
+                            + e.getMessage());
+                }
+            }
+            output = dispatchRequest(session, account, request);
+            if (key != null) {
+                resultCache.put(key, cachedVersion, output);
+            }
+            if (record != null) {
+                journalPosition = current.append(record);
+            }
+        } finally {
+            unlock(locks);
+            managerLock.unlock();
+        }
+        if (journalPosition >= 0) {
+            try {
+                current.sync(journalPosition);
+            } catch (IOException e) {
+                throw new AccountException("The request could not be written to the journal: "
+                        + e.getMessage());
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Executes a request, writing its output as it is produced. Displays of
+     * transactions are streamed to the output one transaction at a time, so
+     * the first transaction appears without building the whole listing
+     * 
+     * @param request Request to be executed
+     * @param out Where the output of the request is written
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     * @throws IOException 
+     */
+    public void executeRequest(Request request, Appendable out) throws AccountException,
+            InvalidRequestException, TransactionNotFoundException, IOException {
+        executeRequest(defaultSession, request, out);
+    }
+
+    /**
+     * Executes a request in a session, writing its output as it is produced
+     * 
+     * @param session The session making the request
+     * @param request Request to be executed
+     * @param out Where the output of the request is written
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     * @throws IOException 
+     */
+    public void executeRequest(Session session, Request request, Appendable out) throws
+            AccountException, InvalidRequestException, TransactionNotFoundException, IOException {
+        switch (request.getAction()) {
+            case "display transaction":
+            case "display transaction page":
+                List<Lock> locks = new ArrayList<>();
+                accountsLock.readLock().lock();
+                try {
+                    Account account = activeAccountOf(session);
+                    lockAccounts(request, account, locks);
+                    if (request.getAction().equals("display transaction")) {
+                        writeTransactions(account, out, Account.FIRST_PAGE, Integer.MAX_VALUE);
+                    } else {
+                        writeTransactionPage(account, out, (TransactionRequest)request);
+                    }
+                } finally {
+                    unlock(locks);
+                    accountsLock.readLock().unlock();
+                }
+                break;
+            default:
+                out.append(executeRequest(session, request)).append("\n");
+                break;
+        }
+    }
+
+    /**
+     * Executes a batch of requests adding and deleting transactions on the
+     * active account, as if no other request ran between them. Either every
+     * request in the batch is applied or none are
+     * 
+     * @param requests The add and delete transaction requests, in order
+     * 
+     * @return The number of the transaction added or deleted by each request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public int[] executeBatch(List<? extends Request> requests)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeBatch(defaultSession, null, requests);
+    }
+
+    /**
+     * Executes a batch of requests on the active account of a session
+     * 
+     * @param session The session making the requests
+     * @param requests The add and delete transaction requests, in order
+     * 
+     * @return The number of the transaction added or deleted by each request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public int[] executeBatch(Session session, List<? extends Request> requests)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeBatch(session, null, requests);
+    }
+
+    /**
+     * Executes a batch of requests on a named account instead of the active account
+     * 
+     * @param accountName The account the requests modify
+     * @param requests The add and delete transaction requests, in order
+     * 
+     * @return The number of the transaction added or deleted by each request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public int[] executeBatch(String accountName, List<? extends Request> requests)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        return executeBatch(defaultSession, accountName, requests);
+    }
+
+    /**
+     * Executes a batch of requests on one account.
+     * <p>
+     * The whole batch is checked against the account before anything is
+     * changed, so a request which would fail rejects the batch. The locks are
+     * taken once, the batch is recorded in the journal as a single record, and
+     * the journal is synced once, so each request costs little more than
+     * adding or deleting its transaction. No output messages are built
+     * 
+     * @param session The session making the requests
+     * @param accountName The account the requests modify, or null for the
+     * active account of the session
+     * @param requests The add and delete transaction requests, in order
+     * 
+     * @return The number of the transaction added or deleted by each request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    private int[] executeBatch(Session session, String accountName, List<? extends Request> requests)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        int[] transactionNumbers;
+        RequestJournal current = null;
+        long journalPosition = -1;
+        List<Lock> locks = new ArrayList<>();
+        accountsLock.readLock().lock();
+        try {
+            Account account = findAccount(session, accountName);
+            if (account == null) {
+                throw new AccountException("Please select an active account before making a transaciton");
+            }
+            lock(account.getLock().writeLock(), locks);
+            hydrate(account);
+            transactionNumbers = validateBatch(account, requests);
+            if (requests.isEmpty()) {
+                return transactionNumbers;
+            }
+            //The batch is encoded before it is applied, so a batch which cannot
+            //be journaled never changes the account
+            current = journal;
+            byte[] record = null;
+            if (current != null) {
+                try {
+                    record = RequestJournal.encodeBatch(account.getName(), requests);
+                } catch (IOException e) {
+                    throw new AccountException("The batch could not be written to the journal: "
+                            + e.getMessage());
+                }
+            }
+            version = Account.nextVersion();
+            applyBatch(account, requests);
+            if (record != null) {
+                journalPosition = current.append(record);
+            }
+        } finally {
+            unlock(locks);
+            accountsLock.readLock().unlock();
+        }
+        if (journalPosition >= 0) {
+            try {
+                current.sync(journalPosition);
+            } catch (IOException e) {
+                throw new AccountException("The batch could not be written to the journal: "
+                        + e.getMessage());
+            }
+        }
+        return transactionNumbers;
+    }
+
+    /**
+     * Checks that every request in a batch would succeed if the batch were
+     * executed on an account, without changing the account
+     * 
+     * @param account The account the batch modifies
+     * @param requests The requests in the batch
+     * 
+     * @return The number of the transaction added or deleted by each request
+     * 
+     * @throws InvalidRequestException if a request does not add or delete a
+     * transaction, or adds a transaction which is missing details or has a date
+     * outside of the range a transaction may have
+     * @throws TransactionNotFoundException if a request deletes a transaction
+     * which would not exist
+     */
+    private static int[] validateBatch(Account account, List<? extends Request> requests)
+            throws InvalidRequestException, TransactionNotFoundException {
+        int[] transactionNumbers = new int[requests.size()];
+        int numOfTransactions = account.getNumOfTransactions();
+        int i = 0;
+        for (Request current : requests) {
+            if (!(current instanceof TransactionRequest)) {
+                throw new InvalidRequestException("Request " + (i + 1) + " of the batch is \""
+                        + current.getAction() + "\", but only transactions can be added "
+                        + "or deleted in a batch");
+            }
+            TransactionRequest request = (TransactionRequest)current;
+            switch (current.getAction()) {
+                case "add transaction":
+                    if (request.getItemName() == null || request.getItemCategory() == null
+                            || request.getDate() == null || !Transaction.isSupportedDate(request.getDate())) {
+                        throw new InvalidRequestException("Request " + (i + 1) + " of the batch "
+                                + "adds a transaction without a name, category, or date between "
+                                + Transaction.MIN_DATE + " and " + Transaction.MAX_DATE);
+                    }
+                    numOfTransactions++;
+                    transactionNumbers[i] = numOfTransactions;
+                    break;
+                case "delete transaction":
+                    int transactionNumber = request.getTransactionNumber();
+                    if (transactionNumber < 1 || transactionNumber > numOfTransactions) {
+                        throw new TransactionNotFoundException("Request " + (i + 1)
+                                + " of the batch deletes transaction number " + transactionNumber
+                                + ", but the account \"" + account.getName() + "\" would have "
+                                + numOfTransactions + " transactions");
+                    }
+                    numOfTransactions--;
+                    transactionNumbers[i] = transactionNumber;
+                    break;
+                default:
+                    throw new InvalidRequestException("Request " + (i + 1) + " of the batch is \""
+                            + current.getAction() + "\", but only transactions can be added "
+                            + "or deleted in a batch");
+            }
+            i++;
+        }
+        return transactionNumbers;
+    }
+
+    /**
+     * Applies a batch which has been validated to an account, then updates
+     * the summaries of every account once for the whole batch
+     * 
+     * @param account The account the batch modifies
+     * @param requests The requests in the batch
+     * 
+     * @throws TransactionNotFoundException 
+     */
+    private void applyBatch(Account account, List<? extends Request> requests)
+            throws TransactionNotFoundException {
+        SymbolTable symbols = SymbolTable.getGlobal();
+        List<Transaction> added = new ArrayList<>();
+        List<Transaction> removed = new ArrayList<>();
+        for (Request current : requests) {
+            TransactionRequest request = (TransactionRequest)current;
+            if (request.getAction().equals("add transaction")) {
+                Transaction transaction = new Transaction(symbols.intern(request.getItemName()),
+                        request.getItemFee(), symbols.intern(request.getItemCategory()),
+                        request.getDate(), request.getQuantity());
+                account.addTransaction(transaction);
+                added.add(transaction);
+            } else {
+                removed.add(account.getTransactions().get(request.getTransactionNumber() - 1));
+                account.deleteTransaction(request.getTransactionNumber());
+            }
+        }
+        synchronized (rollupsLock) {
+            if (rollups != null) {
+                for (Transaction current : added) {
+                    rollups.add(current);
+                }
+                for (Transaction current : removed) {
+                    rollups.remove(current);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param request A request
+     * 
+     * @return true if the request adds, deletes, or replaces accounts, so no
+     * other request may run at the same time
+     */
+    private static boolean isStructural(Request request) {
+        switch (request.getAction()) {
+            case "add account":
+            case "delete account":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Finds the account a request acts on. The accounts lock must be held, so
+     * the account cannot be deleted before the request is executed
+     * 
+     * @param session The session making the request
+     * @param accountName The name of the account, or null for the active
+     * account of the session
+     * 
+     * @return The account, or null if the session has no active account
+     * 
+     * @throws AccountException if no account has the name
+     */
+    private Account findAccount(Session session, String accountName) throws AccountException {
+        if (accountName == null) {
+            return activeAccountOf(session);
+        }
+        Account account = namesToAccounts.get(accountName);
+        if (account == null) {
+            throw new AccountException("The account " + accountName + " is not recognized");
+        }
+        return account;
+    }
+
+    /**
+     * Locks the accounts a request reads or modifies. Requests reading every
+     * account lock them in order of name, so no two requests wait on each other
+     * 
+     * @param request A request
+     * @param account The account the request acts on, or null
+     * @param locks The list the acquired locks are added to, in the order acquired
+     */
+    private void lockAccounts(Request request, Account account, List<Lock> locks) {
+        boolean isAllAccounts;
+        switch (request.getAction()) {
+            case "add transaction":
+            case "delete transaction":
+                if (account != null) {
+                    lock(account.getLock().writeLock(), locks);
+                }
+                return;
+            case "add account":
+            case "delete account":
+            case "change account":
+            case "display account":
+            case "help":
+            case "quit":
+                return;
+            case "display all spending":
+            case "display monthly summary":
+            case "display yearly summary":
+            case "save":
+                isAllAccounts = true;
+                break;
+            case "display transaction largest":
+            case "display transaction frequent":
+                isAllAccounts = ((TransactionRequest)request).isAllAccounts();
+                break;
+            default:
+                isAllAccounts = false;
+                break;
+        }
+        if (isAllAccounts) {
+            lockAllAccounts(locks);
+        } else if (account != null) {
+            lock(account.getLock().readLock(), locks);
+        }
+    }
+
+    /**
+     * Locks every account for reading, in order of name
+     * 
+     * @param locks The list the acquired locks are added to, in the order acquired
+     */
+    private void lockAllAccounts(List<Lock> locks) {
+        for (Account current : new TreeMap<>(namesToAccounts).values()) {
+            lock(current.getLock().readLock(), locks);
+        }
+    }
+
+    /**
+     * @param lock A lock being acquired
+     * @param locks The list the lock is added to once acquired
+     */
+    private static void lock(Lock lock, List<Lock> locks) {
+        lock.lock();
+        locks.add(lock);
+    }
+
+    /**
+     * Releases locks in the reverse of the order they were acquired
+     * 
+     * @param locks The locks which were acquired
+     */
+    private static void unlock(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Describes a request which only reads accounts, so its output can be
+     * cached. Requests reading the active account are described together with
+     * the name of the active account
+     * 
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request A request
+     * 
+     * @return The key of the request's output in the result cache, or null if
+     * the output of the request is not cached
+     */
+    private String cacheKey(Account account, Request request) {
+        StringBuilder sb = new StringBuilder(request.getAction()).append('\u0000');
+        TransactionRequest transactionRequest;
+        switch (request.getAction()) {
+            case "display account":
+            case "display all spending":
+                return sb.toString();
+            case "display monthly summary":
+            case "display yearly summary":
+                //The summaries of the active account are listed first, if there is one
+                return account == null ? sb.toString() : sb.append(account.getName()).toString();
+            case "display transaction":
+            case "display spending":
+            case "display approximate stats":
+                break;
+            case "display transaction category":
+                transactionRequest = (TransactionRequest)request;
+                sb.append(transactionRequest.getItemCategory());
+                break;
+            case "display transaction range":
+            case "display transaction total":
+                transactionRequest = (TransactionRequest)request;
+                sb.append(transactionRequest.getStartDate()).append('\u0000')
+                        .append(transactionRequest.getEndDate());
+                break;
+            case "display transaction page":
+                transactionRequest = (TransactionRequest)request;
+                sb.append(transactionRequest.getCursor()).append('\u0000')
+                        .append(transactionRequest.getPageSize());
+                break;
+            case "query transaction":
+                sb.append(((TransactionRequest)request).getQuery());
+                break;
+            case "display transaction largest":
+            case "display transaction frequent":
+                transactionRequest = (TransactionRequest)request;
+                sb.append(transactionRequest.getCount());
+                if (transactionRequest.isAllAccounts()) {
+                    return sb.toString();
+                }
+                break;
+            default:
+                return null;
+        }
+        if (account == null) {
+            return null; //The request fails without an active account
+        }
+        return sb.append('\u0000').append(account.getName()).toString();
+    }
+
+    /**
+     * @param account The account the request acts on, or null if no account is selected
+     * @param request A request whose output is cached
+     * 
+     * @return The version of the accounts read by the request. Requests reading
+     * only the active account use its version, so changes to other accounts do
+     * not invalidate their outputs
+     */
+    private long versionRead(Account account, Request request) {
+        switch (request.getAction()) {
+            case "display account":
+            case "display all spending":
+            case "display monthly summary":
+            case "display yearly summary":
+                return version;
+            case "display transaction largest":
+            case "display transaction frequent":
+                if (((TransactionRequest)request).isAllAccounts()) {
+                    return version;
+                }
+                return account.getVersion();
+            default:
+                return account.getVersion();
+        }
+    }
+
+    /**
+     * Executes a request without recording it in the journal
+     * 
+     * @param session The session making the request
+     * @param account The account the request acts on, or null
+     * @param request Request to be executed
+     * 
+     * @return Output text of the request
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    private String dispatchRequest(Session session, Account account, Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        if (RequestJournal.isJournaled(request)) {
+            version = Account.nextVersion(); //Outputs reading every account are out of date
+        }
+        String output = "";
+        switch (request.getAction()) {
+            case "add account":
+                output = executeAddAccountRequest(session, (AccountRequest)request);
+                break;
+            case "add transaction":
+                output = executeAddTransactionRequest(account, (TransactionRequest)request);
+                break;
+            case "change account":
+                output = executeChangeAccountRequest(session, (AccountRequest)request);
+                break;
+            case "delete account":
+                output = executeDeleteAccountRequest(session, (AccountRequest)request);
+                break;
+            case "delete transaction":
+                output = executeDeleteTransactionRequest(account, (TransactionRequest)request);
+                break;
+            case "display account":
+                output = executeDisplayAccountRequest();
+                break;
+            case "display transaction":
+                output = executeDisplayTransactionRequest(account);
+                break;
+            case "display transaction category":
+                output = executeDisplayTransactionCategoryRequest(account, (TransactionRequest)request);
+                break;
+            case "display spending":
+                output = executeDisplaySpendingRequest(account);
+                break;
+            case "display transaction range":
+                output = executeDisplayTransactionRangeRequest(account, (TransactionRequest)request);
+                break;
+            case "display transaction total":
+                output = executeDisplayTransactionTotalRequest(account, (TransactionRequest)request);
+                break;
+            case "display monthly summary":
+                output = executeDisplaySummaryRequest(account, true);
+                break;
+            case "display yearly summary":
+                output = executeDisplaySummaryRequest(account, false);
+                break;
+            case "display transaction page":
+                output = executeDisplayTransactionPageRequest(account, (TransactionRequest)request);
+                break;
+            case "display transaction largest":
+                output = executeDisplayLargestTransactionsRequest(account, (TransactionRequest)request);
+                break;
+            case "display transaction frequent":
+                output = executeDisplayFrequentItemsRequest(account, (TransactionRequest)request);
+                break;
+            case "query transaction":
+                output = executeQueryTransactionRequest(account, (TransactionRequest)request);
+                break;
+            case "display approximate stats":
+                output = executeDisplayApproximateStatsRequest(account);
+                break;
+            case "display all spending":
+                output = executeDisplayAllSpendingRequest();
+                break;
+            case "save":
+                output = executeSaveRequest((SaveRequest)request);
+                break;
+            case "help":
+                output = getHelp();
+                break;
+            case "quit":
+                output = executeQuitRequest();
+                break;
+            default:
+                throw new InvalidRequestException("The request \"" + request.getAction()
+                        + "\" is not recognized");
+        }
+        return output;
+    }
+
+    /**
+     * Loads the accounts stored in a data directory and records every following
+     * modification in the directory's journal.
+     * <p>
+     * The directory holds a binary snapshot of the accounts and a journal of the
+     * requests made since the snapshot was written. The snapshot is loaded, the journal is
+     * replayed on top of it, and a background thread periodically folds the journal
+     * into a new snapshot
+     * 
+     * @param directory The data directory, which is created if it does not exist
+     * 
+     * @throws IOException
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    public void openJournal(Path directory) throws IOException, CorruptJSONObjectException,
+            AccountException, InvalidRequestException, TransactionNotFoundException {
+        if (journal != null) {
+            throw new AccountException("A journal is already open");
+        }
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        long snapshotPosition = SnapshotWriter.NO_JOURNAL_POSITION;
+        if (Files.exists(snapshot)) {
+            snapshotPosition = loadSnapshot(snapshot);
+        }
+        RequestJournal opened = new RequestJournal(directory.resolve(JOURNAL_FILE));
+        try {
+            //Replay selects accounts in its own session, so no client's active account changes
+            Session replaySession = new Session(REPLAY_SESSION_ID);
+            accountsLock.writeLock().lock();
+            try {
+                opened.replay(snapshotPosition, (accountName, request) ->
+                        replayRequest(replaySession, accountName, request));
+            } finally {
+                accountsLock.writeLock().unlock();
+            }
+        } catch (IOException | AccountException | InvalidRequestException
+                | TransactionNotFoundException e) {
+            opened.close();
+            throw e;
+        }
+        journal = opened;
+        journalDirectory = directory;
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactJournalIfLarge, COMPACTION_INTERVAL_SECONDS,
+                COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a new snapshot of every account to the data directory and empties
+     * the journal. Requests wait while the snapshot is written
+     * 
+     * @throws IOException 
+     */
+    public void checkpoint() throws IOException {
+        accountsLock.writeLock().lock();
+        try {
+            if (journal == null) {
+                throw new IOException("No journal is open");
+            }
+            journal.syncAll();
+            new SnapshotWriter().write(namesToAccounts.values(), journal.getLastPosition(),
+                    journalDirectory.resolve(SNAPSHOT_FILE));
+            journal.truncate();
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops compacting the journal and closes it. Every journaled request has
+     * been written to disk once this method returns
+     * 
+     * @throws IOException 
+     */
+    public void closeJournal() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        compactor.shutdown();
+        accountsLock.writeLock().lock();
+        try {
+            journal.close();
+            journal = null;
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a request read from the journal
+     * 
+     * @param session The session the journal is replayed in
+     * @param accountName The account which was active when the request was made
+     * @param request The request being replayed
+     * 
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException 
+     */
+    private void replayRequest(Session session, String accountName, Request request)
+            throws AccountException, InvalidRequestException, TransactionNotFoundException {
+        if (accountName != null) {
+            setActiveAccount(session, accountName);
+        }
+        dispatchRequest(session, session.getActiveAccount(), request);
+    }
+
+    /**
+     * Folds the journal into a new snapshot once it has grown large.
+     * Failures are left for the next attempt, as the journal remains intact
+     */
+    private void compactJournalIfLarge() {
+        try {
+            if (journal != null && journal.size() > COMPACTION_THRESHOLD) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            //The journal still holds every request, so compaction is retried later
+        }
+    }
+
+    /**
+     * Creates various Accounts from a JSONObject representation
+     *
+     * @param obj JSONObject containing details necessary for account creation
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     */
+    public void generateAccounts(JSONObject obj) throws
+            CorruptJSONObjectException, AccountException {
+        JSONArray accountsArray;
+        try {
+            accountsArray = (JSONArray) obj.get("accounts");           
+        } catch (Exception e) {
+            throw new CorruptJSONObjectException("The JSON file is corrupted and could not be parsed");
+        }
+        List<Account> accounts = new ArrayList<>(accountsArray.size());
+        for (int i = 0; i < accountsArray.size(); i++) {
+            accounts.add(new Account((JSONObject) accountsArray.get(i)));
+        }
+        addLoadedAccounts(accounts);
+    }
+
+    /**
+     * Creates various Accounts by streaming their JSON representation.
+     * <p>
+     * The JSON is read token by token, so the whole file is never held in memory
+     *
+     * @param reader The stream containing the JSON representation of the accounts
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws IOException
+     */
+    public void generateAccounts(Reader reader) throws
+            CorruptJSONObjectException, AccountException, IOException {
+        addLoadedAccounts(new AccountStreamLoader().load(reader));
+    }
+
+    /**
+     * Creates various Accounts by streaming their JSON representation, building
+     * each account on a pool while the following accounts are read.
+     * <p>
+     * Accounts are added to the account manager in the same order, and with the same
+     * rules, as {@link #generateAccounts(Reader)}
+     *
+     * @param reader The stream containing the JSON representation of the accounts
+     * @param pool The pool whose threads build the accounts
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws IOException
+     */
+    public void generateAccounts(Reader reader, ForkJoinPool pool) throws
+            CorruptJSONObjectException, AccountException, IOException {
+        addLoadedAccounts(new AccountStreamLoader(pool).load(reader));
+    }
+
+    /**
+     * Creates various Accounts from a binary snapshot written by
+     * {@link #saveSnapshot(Path)}
+     *
+     * @param path The snapshot file
+     * 
+     * @return The journal position recorded in the snapshot, or
+     * {@link SnapshotWriter#NO_JOURNAL_POSITION} if the snapshot was not taken of a journal
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws IOException
+     */
+    public long loadSnapshot(Path path) throws
+            CorruptJSONObjectException, AccountException, IOException {
+        return loadSnapshot(path, false);
+    }
+
+    /**
+     * Creates various Accounts from a binary snapshot written by
+     * {@link #saveSnapshot(Path)}.
+     * <p>
+     * If the accounts are loaded lazily, only the account names are read. The
+     * transactions of an account are read the first time the account is selected
+     * or its transactions are displayed or deleted, so loading takes time and
+     * memory proportional to the number of accounts
+     *
+     * @param path The snapshot file
+     * @param isLazy true if transactions should only be read when first needed
+     * 
+     * @return The journal position recorded in the snapshot, or
+     * {@link SnapshotWriter#NO_JOURNAL_POSITION} if the snapshot was not taken of a journal
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws IOException
+     */
+    public long loadSnapshot(Path path, boolean isLazy) throws
+            CorruptJSONObjectException, AccountException, IOException {
+        SnapshotReader reader = new SnapshotReader();
+        addLoadedAccounts(reader.load(path, isLazy));
+        return reader.getJournalPosition();
+    }
+
+    /**
+     * Creates various Accounts from a JSON file.
+     * <p>
+     * If the accounts are loaded lazily, the file is scanned but only the name and
+     * position of each account is kept. The transactions of an account are read
+     * the first time the account is selected or its transactions are displayed or
+     * deleted, so memory use is proportional to the number of accounts. Otherwise,
+     * if there is more than one processor, the accounts are built on the common
+     * pool while the file is read
+     *
+     * @param path The file containing the JSON representation of the accounts
+     * @param isLazy true if transactions should only be read when first needed
+     * 
+     * @throws CorruptJSONObjectException
+     * @throws AccountException
+     * @throws IOException
+     */
+    public void generateAccounts(Path path, boolean isLazy) throws
+            CorruptJSONObjectException, AccountException, IOException {
+        if (isLazy) {
+            addLoadedAccounts(new AccountStreamLoader().loadLazily(path));
+        } else {
+            try (BufferedReader reader = Files.newBufferedReader(path)) {
+                if (Runtime.getRuntime().availableProcessors() > 1) {
+                    generateAccounts(reader, ForkJoinPool.commonPool());
+                } else {
+                    generateAccounts(reader);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds accounts read from a file to the account manager. If only one account
+     * was read, it becomes the active account
+     * 
+     * @param accounts The accounts which were read
+     * 
+     * @throws AccountException 
+     */
+    private void addLoadedAccounts(List<Account> accounts) throws AccountException {
+        accountsLock.writeLock().lock();
+        try {
+            rollups = null; //Loaded accounts may replace accounts of the same name
+            version = Account.nextVersion();
+            for (Account current : accounts) {
+                numOfAccountsLoaded++;
+                namesToAccounts.put(current.getName(), current);
+                if (accounts.size() == 1) {
+                    setActiveAccount(defaultSession, current.getName());
+                }
+            }
+        } finally {
+            accountsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Totals the spending of every loaded account by category and by month.
+     * <p>
+     * The transactions of every account are split into ranges of at most
+     * {@link SpendingReportTask#RANGE_SIZE} transactions, which are summarized
+     * in parallel and merged. Totals are exact sums listed in a fixed order, so
+     * the report does not depend on the number of threads
+     * 
+     * @param pool The pool whose threads summarize the transactions
+     * 
+     * @return The spending of every loaded account
+     * 
+     * @throws AccountException 
+     */
+    public SpendingReport analyzeAccounts(ForkJoinPool pool) throws AccountException {
+        List<Lock> locks = new ArrayList<>();
+        accountsLock.readLock().lock();
+        try {
+            lockAllAccounts(locks);
+            return summarizeAccounts(pool);
+        } finally {
+            unlock(locks);
+            accountsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Totals the spending of every loaded account. The caller must hold the
+     * read lock of the account map and of every account
+     * 
+     * @param pool The pool whose threads summarize the transactions
+     * 
+     * @return The spending of every loaded account
+     * 
+     * @throws AccountException if an account can not be read, or if a total is
+     * too large to be held in minor units
+     */
+    private SpendingReport summarizeAccounts(ForkJoinPool pool) throws AccountException {
+        List<Account> accounts = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>(); //{account, fromIndex, toIndex}
+        for (Account current : namesToAccounts.values()) {
+            hydrate(current);
+            int numOfTransactions = current.getNumOfTransactions();
+            for (int i = 0; i < numOfTransactions; i += SpendingReportTask.RANGE_SIZE) {
+                ranges.add(new int[]{accounts.size(), i,
+                    Math.min(numOfTransactions, i + SpendingReportTask.RANGE_SIZE)});
+            }
+            accounts.add(current);
+        }
+        try {
+            return pool.invoke(new SpendingReportTask(accounts, ranges, 0, ranges.size()));
+        } catch (ArithmeticException e) {
+            throw new AccountException("The spending of the accounts is too large to be totalled");
+        }
+    }
+
+    /**
+     * Writes every loaded account to a file in the format read by
+     * {@link #generateAccounts(Reader)}. The file is replaced atomically,
+     * so it is never left partially written
+     * 
+     * @param path The file the accounts are written to
+     * 
+     * @throws IOException 
+     */
+    public void saveAccounts(Path path) throws IOException {
+        List<Lock> locks = new ArrayList<>();
+        accountsLock.readLock().lock();
+        try {
+            lockAllAccounts(locks);
+            new AccountWriter().write(namesToAccounts.values(), path);
+        } finally {
+            unlock(locks);
+            accountsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes every loaded account to a binary snapshot, which loads faster than
+     * the JSON written by {@link #saveAccounts(Path)}
+     * 
+     * @param path The file the snapshot is written to
+     * 
+     * @throws IOException 
+     */
+    public void saveSnapshot(Path path) throws IOException {
+        List<Lock> locks = new ArrayList<>();
+        accountsLock.readLock().lock();
+        try {
+            lockAllAccounts(locks);
+            new SnapshotWriter().write(namesToAccounts.values(), path);
+        } finally {
+            unlock(locks);
+            accountsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 
+     * @return Set containing all account names loaded in the account manager
+     * @throws AccountException 
+     */
+    public Set<String> getAccountNames() throws AccountException {
+        if (namesToAccounts.isEmpty()) {
+            throw new AccountException("No accounts are currently loaded");
+        }
+        return namesToAccounts.keySet();
+    }
+
+    /**
+     *
+     * @return Name of the active account
+     * 
+     * @throws AccountException
+     */
+    public String getActiveAccountName() throws AccountException {
+        return getActiveAccountName(defaultSession);
+    }
+
+    /**
+     * @param session A session of the account manager
+     * 
+     * @return Name of the active account of the session
+     * 
+     * @throws AccountException
+     */
+    public String getActiveAccountName(Session session) throws AccountException {
+        Account account = activeAccountOf(session);
+        if (account == null) {
+            throw new AccountException("No account is currently selected");
+        }
+        return account.getName();
+    }
+    
+    /**
+     * 
+     * @return The cache of outputs of requests which only read accounts
+     */
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * 
+     * @return Number of accounts currently loaded in the account manager
+     */
+    public int getNumOfAccountsLoaded() {
+        return numOfAccountsLoaded;
+    }
+
+    /**
+     *
+     * @return A list of useful commands for executing the program
+     */
+    public static String getHelp() {
+        StringBuilder sb = new StringBuilder();
+        HashMap<String, String> map1 = Request.getONE_PARAM_ACTION_DESCRIPTIONS();
+        HashMap<String, String> map2 = Request.getTWO_PARAM_ACTION_DESCRIPTIONS();
+        for (HashMap.Entry<String, String> current : map1.entrySet()) {
+            sb.append("Type \"").append(current.getKey()).append("\" to ").append(current.getValue()).append("\n");
+        }
+        for (HashMap.Entry<String, String> current : map2.entrySet()) {
+            sb.append("Type \"").append(current.getKey()).append("\" to ").append(current.getValue()).append("\n");
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 
+     * @return true if there is currently an active account in the account manager,
+     * false otherwise
+     */
+    public boolean hasActiveAccount() {
+        return hasActiveAccount(defaultSession);
+    }
+
+    /**
+     * @param session A session of the account manager
+     * 
+     * @return true if the session has an active account which has not been
+     * deleted, false otherwise
+     */
+    public boolean hasActiveAccount(Session session) {
+        return activeAccountOf(session) != null;
+    }
+
+    /**
+     * Opens a session with no active account. Requests made in the session
+     * only change its own active account
+     * 
+     * @return The new session
+     */
+    public Session openSession() {
+        Session session = new Session(nextSessionId.getAndIncrement());
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Finds an open session in O(1)
+     * 
+     * @param id The id of the session
+     * 
+     * @return The session
+     * 
+     * @throws AccountException if no open session has the id
+     */
+    public Session getSession(long id) throws AccountException {
+        Session session = sessions.get(id);
+        if (session == null) {
+            throw new AccountException("The session " + id + " is not open");
+        }
+        return session;
+    }
+
+    /**
+     * Closes a session, so it can no longer be found by its id
+     * 
+     * @param session The session being closed
+     */
+    public void closeSession(Session session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * @return The number of sessions which are open, not counting the
+     * session used by requests made without one
+     */
+    public int getNumOfSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * @param session A session of the account manager
+     * 
+     * @return The active account of the session, or null if it has none or
+     * the account has since been deleted
+     */
+    private Account activeAccountOf(Session session) {
+        Account account = session.getActiveAccount();
+        return account != null && namesToAccounts.get(account.getName()) == account ? account : null;
+    }
+
+    /**
+     * Changes the active account of a session
+     * 
+     * @param session The session whose active account changes
+     * @param accountName The name of the account becoming the active account
+     * 
+     * @throws AccountException 
+     */
+    private void setActiveAccount(Session session, String accountName) throws AccountException {
+        if (!namesToAccounts.containsKey(accountName)) {
+            throw new AccountException("The account " + accountName
+                    + " is not recognized");
+        }
+        Account account = namesToAccounts.get(accountName);
+        hydrate(account);
+        session.setActiveAccount(account);
+    }
+
+    /**
+     * Reads the transactions of an account if it was loaded lazily
+     * 
+     * @param account The account whose transactions are needed
+     * 
+     * @throws AccountException 
+     */
+    private void hydrate(Account account) throws AccountException {
+        try {
+            account.hydrate();
+        } catch (CorruptJSONObjectException | IOException e) {
+            throw new AccountException("The transactions of the account \""
+                    + account.getName() + "\" could not be loaded: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Summarizes ranges of transactions by splitting the ranges between threads
+     */
+    private static class SpendingReportTask extends RecursiveTask<SpendingReport> {
+
+        //Number of transactions summarized by a single thread without splitting further
+        private static final int RANGE_SIZE = 16 * 1024;
+
+        private final List<Account> accounts;
+        private final List<int[]> ranges;
+        private final int start;
+        private final int end;
+
+        /**
+         * @param accounts The accounts being summarized
+         * @param ranges The account and range of positions of each range of transactions
+         * @param start The first range summarized by the task
+         * @param end The range after the last range summarized by the task
+         */
+        SpendingReportTask(List<Account> accounts, List<int[]> ranges, int start, int end) {
+            this.accounts = accounts;
+            this.ranges = ranges;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected SpendingReport compute() {
+            if (end - start <= 1) {
+                SpendingReport report = new SpendingReport();
+                for (int i = start; i < end; i++) {
+                    int[] range = ranges.get(i);
+                    accounts.get(range[0]).summarizeTransactions(range[1], range[2], report);
+                }
+                return report;
+            }
+            int middle = (start + end) >>> 1;
+            SpendingReportTask left = new SpendingReportTask(accounts, ranges, start, middle);
+            SpendingReportTask right = new SpendingReportTask(accounts, ranges, middle, end);
+            left.fork();
+            SpendingReport report = right.compute();
+            report.merge(left.join());
+            return report;
         }
-        activeAccount = namesToAccounts.get(accountName);
     }
 }
@@ -0,0 +1,635 @@
+package finance;
+
+//imports
+//simple json parser imports
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads accounts from their JSON representation one token at a time.
+ * <p>
+ * Unlike parsing the file into a JSONObject, the loader never holds the JSON
+ * tree in memory. Accounts and transactions are built as soon as their closing
+ * brace is read, so the memory needed to load a file stays close to the memory
+ * used by the loaded accounts themselves.
+ * <p>
+ * Given a ForkJoinPool, the loader only tokenizes the stream itself. The
+ * details of each account's transactions are handed to the pool as soon as the
+ * account is read, where fees and dates are parsed and the account's columns and
+ * indexes are built while the next account is being read.
+ *
+ * @author Dylan Munro
+ */
+public class AccountStreamLoader implements ContentHandler {
+
+    //Containers the parser can currently be inside of
+    private static final int ROOT = 0;
+    private static final int ACCOUNTS = 1;
+    private static final int ACCOUNT = 2;
+    private static final int TRANSACTIONS = 3;
+    private static final int TRANSACTION = 4;
+    private static final int ITEM = 5;
+    private static final int SKIP = 6; //Any value the loader does not use
+
+    //Accounts waiting to be built on each thread of the pool before reading waits for them
+    private static final int MAX_PENDING_BUILDS_PER_THREAD = 4;
+
+    private final JSONParser jParser = new JSONParser();
+    private final ForkJoinPool pool; //null if accounts are built as they are read
+    private int[] containers = new int[8];
+    private int depth;
+    private String currentKey;
+    private CorruptJSONObjectException error;
+    private boolean foundAccounts;
+
+    private final List<Account> accounts = new ArrayList<>();
+    private final List<AccountBuildTask> builds = new ArrayList<>(); //Accounts built on the pool
+    private int numOfBuildsJoined;
+
+    //Lazy loading only records the byte offset where each account begins in the file
+    private boolean isIndexing;
+    private boolean isSingleAccount;
+    private Path indexedFile;
+    private ByteCountingReader indexedReader;
+    private long indexedFileSize;
+    private FileTime indexedFileModified;
+    private long accountPosition;
+    private int numOfAccountTransactions;
+
+    //Details of the account currently being read
+    private String accountName;
+    private boolean foundTransactions;
+    private final List<Transaction> accountTransactions = new ArrayList<>();
+    private List<TransactionDetails> accountDetails = new ArrayList<>(); //Transactions built on the pool
+
+    //Details of the transaction currently being read
+    private boolean foundItem;
+    private Object itemName;
+    private Object itemFee;
+    private Object itemCategory;
+    private Object quantity;
+    private Object date;
+
+    /**
+     * The raw values of a transaction read from the stream, which are checked
+     * and parsed once the transaction is built
+     */
+    private static final class TransactionDetails {
+
+        private final boolean foundItem;
+        private final Object itemName;
+        private final Object itemFee;
+        private final Object itemCategory;
+        private final Object quantity;
+        private final Object date;
+
+        private TransactionDetails(boolean foundItem, Object itemName, Object itemFee,
+                Object itemCategory, Object quantity, Object date) {
+            this.foundItem = foundItem;
+            this.itemName = itemName;
+            this.itemFee = itemFee;
+            this.itemCategory = itemCategory;
+            this.quantity = quantity;
+            this.date = date;
+        }
+
+        /**
+         * @return The transaction described by the values
+         *
+         * @throws CorruptJSONObjectException
+         */
+        private Transaction build() throws CorruptJSONObjectException {
+            if (!foundItem) {
+                throw new CorruptJSONObjectException("Transaction does not have an item");
+            }
+            if (itemName == null) {
+                throw new CorruptJSONObjectException("Item does not have a name");
+            }
+            if (itemFee == null) {
+                throw new CorruptJSONObjectException("Item does not have a fee");
+            }
+            SymbolTable symbols = SymbolTable.getGlobal();
+            String category = itemCategory == null ? "Other" : symbols.intern(itemCategory.toString());
+            Item item = new Item(Item.parseFee(itemFee), symbols.intern(itemName.toString()), category);
+            int itemQuantity = Transaction.parseQuantity(quantity, item);
+            LocalDate transactionDate = Transaction.parseDate(date);
+            return new Transaction(item, transactionDate, itemQuantity, 0);
+        }
+    }
+
+    /**
+     * Decodes a UTF-8 stream while converting positions in the decoded
+     * characters into byte offsets in the stream.
+     * <p>
+     * The characters returned by the reader are kept until their position has
+     * been converted. Positions must be converted in increasing order, so only
+     * the characters read ahead of the last converted position are held
+     */
+    private static final class ByteCountingReader extends Reader {
+
+        private final Reader in;
+        private char[] history = new char[8192]; //Characters read but not yet counted
+        private int historyStart;
+        private int historyEnd;
+        private long countedChars;
+        private long countedBytes;
+
+        /**
+         * @param in The decoded UTF-8 stream
+         */
+        private ByteCountingReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int numRead = in.read(buffer, offset, length);
+            if (numRead > 0) {
+                if (historyEnd + numRead > history.length) {
+                    int numKept = historyEnd - historyStart;
+                    char[] kept = numKept + numRead > history.length
+                            ? new char[Math.max(history.length * 2, numKept + numRead)] : history;
+                    System.arraycopy(history, historyStart, kept, 0, numKept);
+                    history = kept;
+                    historyStart = 0;
+                    historyEnd = numKept;
+                }
+                System.arraycopy(buffer, offset, history, historyEnd, numRead);
+                historyEnd += numRead;
+            }
+            return numRead;
+        }
+
+        /**
+         * Converts a character position into a byte offset. Characters before
+         * the position are no longer held once it has been converted
+         *
+         * @param charPosition A position in the decoded characters, no smaller
+         * than any position converted before
+         *
+         * @return The offset of the character's first byte in the stream
+         *
+         * @throws IOException if the position has not been read yet
+         */
+        private long bytePosition(long charPosition) throws IOException {
+            while (countedChars < charPosition) {
+                if (historyStart == historyEnd) {
+                    throw new IOException("Character " + charPosition + " has not been read");
+                }
+                char c = history[historyStart++];
+                if (c < 0x80) {
+                    countedBytes += 1;
+                } else if (c < 0x800 || Character.isSurrogate(c)) {
+                    countedBytes += 2; //Each half of a surrogate pair is half of a 4 byte sequence
+                } else {
+                    countedBytes += 3;
+                }
+                countedChars++;
+            }
+            return countedBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Builds an account from the details of its transactions on a pool
+     */
+    private static final class AccountBuildTask extends RecursiveTask<Account> {
+
+        private final String name;
+        private final List<TransactionDetails> details;
+        private CorruptJSONObjectException error; //Set if the account could not be built
+
+        /**
+         * @param name The name of the account
+         * @param details The details of the account's transactions, in order
+         */
+        private AccountBuildTask(String name, List<TransactionDetails> details) {
+            this.name = name;
+            this.details = details;
+        }
+
+        @Override
+        protected Account compute() {
+            Account account = new Account(name);
+            try {
+                for (TransactionDetails current : details) {
+                    account.addLoadedTransaction(current.build());
+                }
+            } catch (CorruptJSONObjectException e) {
+                error = e;
+                return null;
+            }
+            return account;
+        }
+    }
+
+    /**
+     * Creates a loader which builds each account on the thread reading the stream
+     */
+    public AccountStreamLoader() {
+        this(null);
+    }
+
+    /**
+     * Creates a loader which builds accounts on a pool while the stream is read
+     *
+     * @param pool The pool whose threads build the accounts, or null to build
+     * them on the thread reading the stream
+     */
+    public AccountStreamLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reads every account stored in a JSON stream
+     *
+     * @param reader The stream containing the JSON representation of the accounts
+     *
+     * @return The accounts in the order they appear in the stream
+     *
+     * @throws CorruptJSONObjectException
+     * @throws IOException
+     */
+    public List<Account> load(Reader reader) throws CorruptJSONObjectException, IOException {
+        try {
+            jParser.parse(reader, this);
+        } catch (ParseException e) {
+            throw new CorruptJSONObjectException("The JSON file is corrupted and could not be parsed: "
+                    + e.toString());
+        }
+        if (error != null) {
+            throw error;
+        }
+        if (!foundAccounts) {
+            throw new CorruptJSONObjectException("The JSON file is corrupted and could not be parsed");
+        }
+        while (numOfBuildsJoined < builds.size()) {
+            joinNextBuild();
+        }
+        return accounts;
+    }
+
+    /**
+     * Lazily reads every account stored in a JSON file.
+     * <p>
+     * The file is still read token by token, but only the name of each account,
+     * its number of transactions, and the byte offset it begins at are kept. The
+     * transactions are read from that offset once the account is hydrated, so the
+     * file must not change while its accounts are in use
+     *
+     * @param path The file containing the JSON representation of the accounts
+     *
+     * @return The accounts in the order they appear in the file
+     *
+     * @throws CorruptJSONObjectException
+     * @throws IOException
+     */
+    public List<Account> loadLazily(Path path) throws CorruptJSONObjectException, IOException {
+        isIndexing = true;
+        indexedFile = path;
+        indexedFileSize = Files.size(path);
+        indexedFileModified = Files.getLastModifiedTime(path);
+        try (ByteCountingReader reader = new ByteCountingReader(Files.newBufferedReader(path))) {
+            indexedReader = reader;
+            return load(reader);
+        } finally {
+            indexedReader = null;
+        }
+    }
+
+    /**
+     * Reads the transactions of a single account from a JSON file indexed by
+     * {@link #loadLazily(Path)}
+     *
+     * @param name The name of the account
+     * @param position The byte offset of the account in the file
+     *
+     * @return The transactions of the account
+     *
+     * @throws CorruptJSONObjectException
+     * @throws IOException
+     */
+    private List<Transaction> loadIndexedAccount(String name, long position)
+            throws CorruptJSONObjectException, IOException {
+        if (Files.size(indexedFile) != indexedFileSize
+                || !Files.getLastModifiedTime(indexedFile).equals(indexedFileModified)) {
+            throw new CorruptJSONObjectException("The file \"" + indexedFile
+                    + "\" has changed since the account \"" + name + "\" was loaded");
+        }
+        AccountStreamLoader loader = new AccountStreamLoader();
+        loader.isSingleAccount = true;
+        try (FileChannel channel = FileChannel.open(indexedFile, StandardOpenOption.READ)) {
+            channel.position(position);
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            List<Account> loaded = loader.load(reader);
+            if (loaded.size() != 1 || !loaded.get(0).getName().equals(name)) {
+                throw new CorruptJSONObjectException("The account \"" + name
+                        + "\" could not be found in \"" + indexedFile + "\"");
+            }
+            return loaded.get(0).getTransactions();
+        }
+    }
+
+    @Override
+    public void startJSON() {
+        depth = 0;
+        foundAccounts = isSingleAccount;
+        if (isSingleAccount) {
+            push(ACCOUNTS);
+        }
+        accounts.clear();
+        builds.clear();
+        numOfBuildsJoined = 0;
+    }
+
+    @Override
+    public void endJSON() {
+    }
+
+    @Override
+    public boolean startObject() throws IOException {
+        int container;
+        if (depth == 0) {
+            container = ROOT;
+        } else if (top() == ACCOUNTS) {
+            container = ACCOUNT;
+            accountPosition = isIndexing ? indexedReader.bytePosition(jParser.getPosition()) : 0;
+            numOfAccountTransactions = 0;
+            accountName = null;
+            foundTransactions = false;
+            accountTransactions.clear();
+            accountDetails = new ArrayList<>();
+        } else if (top() == TRANSACTIONS) {
+            container = TRANSACTION;
+            foundItem = false;
+            quantity = null;
+            date = null;
+        } else if (top() == TRANSACTION && "item".equals(currentKey)) {
+            container = ITEM;
+            foundItem = true;
+            itemName = null;
+            itemFee = null;
+            itemCategory = null;
+        } else {
+            return push(SKIP, ACCOUNTS, TRANSACTIONS);
+        }
+        push(container);
+        return true;
+    }
+
+    @Override
+    public boolean endObject() throws IOException {
+        int container = containers[--depth];
+        try {
+            if (container == ACCOUNT && pool != null && !isIndexing) {
+                submitAccount();
+            } else if (container == ACCOUNT) {
+                accounts.add(isIndexing ? buildIndexedAccount() : buildAccount());
+                return !isSingleAccount;
+            } else if (container == TRANSACTION && isIndexing) {
+                numOfAccountTransactions++;
+                indexedReader.bytePosition(jParser.getPosition()); //Releases the transaction's characters
+            } else if (container == TRANSACTION) {
+                TransactionDetails details = new TransactionDetails(foundItem, itemName, itemFee,
+                        itemCategory, quantity, date);
+                if (pool == null) {
+                    accountTransactions.add(details.build());
+                } else {
+                    accountDetails.add(details);
+                }
+            }
+        } catch (CorruptJSONObjectException e) {
+            return fail(e);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        currentKey = key;
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        if (depth == 1 && top() == ROOT && "accounts".equals(currentKey)) {
+            foundAccounts = true;
+            push(ACCOUNTS);
+            return true;
+        } else if (top() == ACCOUNT && "transactions".equals(currentKey)) {
+            foundTransactions = true;
+            push(TRANSACTIONS);
+            return true;
+        }
+        return push(SKIP, ACCOUNTS, TRANSACTIONS);
+    }
+
+    @Override
+    public boolean endArray() {
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) {
+        switch (top()) {
+            case ROOT:
+                if ("accounts".equals(currentKey)) {
+                    return fail(new CorruptJSONObjectException(
+                            "The JSON file is corrupted and could not be parsed"));
+                }
+                break;
+            case ACCOUNTS:
+            case TRANSACTIONS:
+                return fail(new CorruptJSONObjectException(
+                        "The JSON file is corrupted and could not be parsed"));
+            case ACCOUNT:
+                if ("name".equals(currentKey)) {
+                    accountName = value == null ? null : value.toString();
+                }
+                break;
+            case TRANSACTION:
+                if ("quantity".equals(currentKey)) {
+                    quantity = value;
+                } else if ("date".equals(currentKey)) {
+                    date = value;
+                }
+                break;
+            case ITEM:
+                if ("name".equals(currentKey)) {
+                    itemName = value;
+                } else if ("fee".equals(currentKey)) {
+                    itemFee = value;
+                } else if ("category".equals(currentKey)) {
+                    itemCategory = value;
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the account which has just been read
+     *
+     * @return The account containing every transaction read since the account began
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private Account buildAccount() throws CorruptJSONObjectException {
+        if (accountName == null) {
+            throw new CorruptJSONObjectException("Account does not have a name");
+        }
+        if (!foundTransactions) {
+            throw new CorruptJSONObjectException(
+                    "The account \"" + accountName + "\" does not have any transactions");
+        }
+        Account account = new Account(accountName);
+        for (Transaction current : accountTransactions) {
+            account.addLoadedTransaction(current);
+        }
+        accountTransactions.clear();
+        return account;
+    }
+
+    /**
+     * Hands the account which has just been read to the pool to be built. The
+     * account is added to the loaded accounts once every account has been read,
+     * so the accounts keep the order they appear in the stream
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private void submitAccount() throws CorruptJSONObjectException {
+        if (accountName == null) {
+            throw new CorruptJSONObjectException("Account does not have a name");
+        }
+        if (!foundTransactions) {
+            throw new CorruptJSONObjectException(
+                    "The account \"" + accountName + "\" does not have any transactions");
+        }
+        AccountBuildTask task = new AccountBuildTask(accountName, accountDetails);
+        builds.add(task);
+        pool.execute(task);
+        //Reading waits once the pool falls behind, so the details of at most a
+        //few accounts per thread are held at once
+        if (builds.size() - numOfBuildsJoined > MAX_PENDING_BUILDS_PER_THREAD * pool.getParallelism()) {
+            joinNextBuild();
+        }
+    }
+
+    /**
+     * Waits for the oldest account still being built and adds it to the loaded accounts
+     *
+     * @throws CorruptJSONObjectException if the account could not be built
+     */
+    private void joinNextBuild() throws CorruptJSONObjectException {
+        AccountBuildTask task = builds.get(numOfBuildsJoined);
+        builds.set(numOfBuildsJoined++, null); //The built account is held by accounts
+        Account account = task.join();
+        if (task.error != null) {
+            throw task.error;
+        }
+        accounts.add(account);
+    }
+
+    /**
+     * Creates the lazily loaded account which has just been read
+     *
+     * @return The account, which reads its transactions from the file when hydrated
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private Account buildIndexedAccount() throws CorruptJSONObjectException {
+        if (accountName == null) {
+            throw new CorruptJSONObjectException("Account does not have a name");
+        }
+        if (!foundTransactions) {
+            throw new CorruptJSONObjectException(
+                    "The account \"" + accountName + "\" does not have any transactions");
+        }
+        String name = accountName;
+        long position = accountPosition;
+        return new Account(name, () -> loadIndexedAccount(name, position),
+                numOfAccountTransactions);
+    }
+
+    /**
+     * Stops the parser and records the reason why
+     *
+     * @param e The exception describing why the JSON could not be loaded
+     *
+     * @return false, so that the parser stops reading
+     */
+    private boolean fail(CorruptJSONObjectException e) {
+        error = e;
+        return false;
+    }
+
+    /**
+     * Enters a new container, failing if the container is not allowed inside its parent
+     *
+     * @param container The container being entered
+     * @param forbiddenParents Containers which may only hold objects
+     *
+     * @return true if the container was entered, false if the JSON is corrupt
+     */
+    private boolean push(int container, int... forbiddenParents) {
+        for (int parent : forbiddenParents) {
+            if (top() == parent) {
+                return fail(new CorruptJSONObjectException(
+                        "The JSON file is corrupted and could not be parsed"));
+            }
+        }
+        push(container);
+        return true;
+    }
+
+    /**
+     * Enters a new container
+     *
+     * @param container The container being entered
+     */
+    private void push(int container) {
+        if (depth == containers.length) {
+            int[] larger = new int[containers.length * 2];
+            System.arraycopy(containers, 0, larger, 0, depth);
+            containers = larger;
+        }
+        containers[depth++] = container;
+    }
+
+    /**
+     * @return The container the parser is currently inside of
+     */
+    private int top() {
+        return depth == 0 ? -1 : containers[depth - 1];
+    }
+}
@@ -0,0 +1,145 @@
+package finance;
+
+//imports
+//simple json parser imports
+import org.json.simple.JSONValue;
+
+//io imports
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Collection;
+
+/**
+ * Writes accounts to a file in the JSON format read by {@link AccountStreamLoader}.
+ * <p>
+ * The JSON is written directly to the file as each transaction is visited, so
+ * saving does not need memory proportional to the number of transactions.
+ * Files are written crash-safely: the accounts are written to a temporary file
+ * which then atomically replaces the destination
+ *
+ * @author Dylan Munro
+ */
+public class AccountWriter {
+
+    //Size of the buffer between the JSON being generated and the file channel
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes accounts to a file, replacing its previous contents
+     *
+     * @param accounts The accounts to be written
+     * @param path The file the accounts are written to
+     *
+     * @throws IOException
+     */
+    public void write(Collection<Account> accounts, Path path) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path tempFile = Files.createTempFile(absolutePath.getParent(),
+                absolutePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer writer = new BufferedWriter(Channels.newWriter(channel,
+                        StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+                write(accounts, writer);
+                writer.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, absolutePath, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new IOException("The file \"" + path + "\" could not be replaced: " + e, e);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Writes the JSON representation of accounts to a stream
+     *
+     * @param accounts The accounts to be written
+     * @param writer The stream the JSON is written to
+     *
+     * @throws IOException
+     */
+    public void write(Collection<Account> accounts, Writer writer) throws IOException {
+        boolean isFirst = true;
+        writer.write("{\n    \"accounts\": [");
+        for (Account current : accounts) {
+            writer.write(isFirst ? "\n" : ",\n");
+            writeAccount(current, writer);
+            isFirst = false;
+        }
+        writer.write("\n    ]\n}\n");
+    }
+
+    /**
+     * Writes the JSON representation of a single account
+     *
+     * @param account The account being written
+     * @param writer The stream the JSON is written to
+     *
+     * @throws IOException
+     */
+    private void writeAccount(Account account, Writer writer) throws IOException {
+        boolean isFirst = true;
+        writer.write("        {\n            \"name\": ");
+        writeString(account.getName(), writer);
+        writer.write(",\n            \"transactions\": [");
+        for (Transaction current : account.getTransactions()) {
+            writer.write(isFirst ? "\n" : ",\n");
+            writeTransaction(current, writer);
+            isFirst = false;
+        }
+        writer.write("\n            ]\n        }");
+    }
+
+    /**
+     * Writes the JSON representation of a single transaction
+     *
+     * @param transaction The transaction being written
+     * @param writer The stream the JSON is written to
+     *
+     * @throws IOException
+     */
+    private void writeTransaction(Transaction transaction, Writer writer) throws IOException {
+        Item item = transaction.getItem();
+        writer.write("                {\n                    \"item\": {\n"
+                + "                        \"name\": ");
+        writeString(item.getName(), writer);
+        writer.write(",\n                        \"fee\": ");
+        writer.write(Money.toString(item.getFee()));
+        writer.write(",\n                        \"category\": ");
+        writeString(item.getCategory(), writer);
+        writer.write("\n                    },\n                    \"date\": \"");
+        writer.write(transaction.getDate().toString());
+        writer.write("\",\n                    \"quantity\": ");
+        writer.write(Integer.toString(transaction.getQuantity()));
+        writer.write("\n                }");
+    }
+
+    /**
+     * Writes a JSON string, escaping any characters JSON does not allow
+     *
+     * @param str The string being written
+     * @param writer The stream the JSON is written to
+     *
+     * @throws IOException
+     */
+    private void writeString(String str, Writer writer) throws IOException {
+        writer.write('"');
+        writer.write(JSONValue.escape(str));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,347 @@
+package finance;
+
+//imports
+//simple json parser imports
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+//http server imports
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+//io imports
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the requests of an AccountManager as a JSON API over HTTP, listening
+ * only on the local machine.
+ * <p>
+ * The endpoints are
+ * <ul>
+ * <li>{@code GET /accounts} lists the accounts</li>
+ * <li>{@code POST /accounts} with {@code {"name": ...}} adds an account</li>
+ * <li>{@code DELETE /accounts/(name)} deletes an account</li>
+ * <li>{@code GET /accounts/(name)/transactions?cursor=(c)&size=(n)} displays a
+ * page of an account's transactions</li>
+ * <li>{@code POST /accounts/(name)/transactions} with {@code {"name": ...,
+ * "fee": ..., "category": ..., "date": "yyyy-mm-dd", "quantity": ...}} adds a
+ * transaction</li>
+ * <li>{@code DELETE /accounts/(name)/transactions/(number)} deletes a transaction</li>
+ * </ul>
+ * Responses hold the output of the request as {@code {"output": ...}}, the
+ * accounts as {@code {"accounts": [...]}}, or the reason a request failed as
+ * {@code {"error": ...}}.
+ * <p>
+ * Requests run on a fixed pool of threads with a bounded queue. Once the queue
+ * is full, the thread accepting connections runs the request itself, so no
+ * more connections are accepted until the pool catches up
+ *
+ * @author Dylan Munro
+ */
+public class ApiServer {
+
+    //Public Constants
+    public static final int DEFAULT_PORT = 8080;
+
+    //Private Constants
+    private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int STOP_DELAY_SECONDS = 1; //Time given to exchanges in progress
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_CREATED = 201;
+    private static final int HTTP_BAD_REQUEST = 400;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_BAD_METHOD = 405;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+
+    private final AccountManager manager;
+    private final Session session; //Used by requests which add or delete accounts
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Thrown when a request cannot be mapped to an endpoint or is missing data
+     */
+    private static final class HttpError extends Exception {
+
+        private final int status;
+
+        /**
+         * @param status The HTTP status of the response
+         * @param message The reason the request failed
+         */
+        private HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Creates a server which is not yet started
+     *
+     * @param manager The account manager whose requests are served
+     * @param port The port listened on, or 0 for any free port
+     * @param numOfThreads The number of threads running requests
+     *
+     * @throws IOException if the port cannot be listened on
+     */
+    public ApiServer(AccountManager manager, int port, int numOfThreads) throws IOException {
+        this.manager = manager;
+        this.session = manager.openSession();
+        //The headers and body of a response are written separately, so with
+        //Nagle's algorithm the body waits on the client's delayed ACK of the headers
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = new ThreadPoolExecutor(numOfThreads, numOfThreads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(numOfThreads * QUEUE_CAPACITY_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+        server.createContext("/accounts", this::handle);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, then waits for the requests in progress to finish
+     *
+     * @throws InterruptedException
+     */
+    public void stop() throws InterruptedException {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+        executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        manager.closeSession(session);
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Executes the request of an exchange and sends its response
+     *
+     * @param exchange The exchange holding the HTTP request
+     *
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = HTTP_OK;
+        JSONObject response;
+        try {
+            response = route(exchange);
+            if (exchange.getRequestMethod().equals("POST")) {
+                status = HTTP_CREATED;
+            }
+        } catch (HttpError e) {
+            status = e.status;
+            response = error(e.getMessage());
+        } catch (TransactionNotFoundException e) {
+            status = HTTP_NOT_FOUND;
+            response = error(e.getMessage());
+        } catch (AccountException | InvalidRequestException | ParseException
+                | IllegalArgumentException | DateTimeException e) {
+            status = HTTP_BAD_REQUEST;
+            response = error(e.getMessage() == null ? e.toString() : e.getMessage());
+        } catch (RuntimeException e) {
+            status = HTTP_INTERNAL_ERROR;
+            response = error("The request could not be executed: " + e);
+        }
+        byte[] body = response.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Maps an HTTP request to a request of the account manager and executes it
+     *
+     * @param exchange The exchange holding the HTTP request
+     *
+     * @return The body of the response
+     */
+    private JSONObject route(HttpExchange exchange) throws HttpError, IOException, ParseException,
+            AccountException, InvalidRequestException, TransactionNotFoundException {
+        String method = exchange.getRequestMethod();
+        //The path starts with "/accounts", which is the first segment
+        String[] segments = exchange.getRequestURI().getRawPath().split("/");
+        int numOfSegments = segments.length - 2; //Segments after "/accounts"
+        if (!segments[1].equals("accounts")) {
+            throw new HttpError(HTTP_NOT_FOUND, "No endpoint is at " + exchange.getRequestURI());
+        }
+        String accountName = numOfSegments >= 1 ? decode(segments[2]) : null;
+        if (numOfSegments == 0) {
+            if (method.equals("GET")) {
+                return listAccounts();
+            } else if (method.equals("POST")) {
+                String name = field(readBody(exchange), "name");
+                return output(manager.executeRequest(session, new AccountRequest("add account", name)));
+            }
+        } else if (numOfSegments == 1) {
+            if (method.equals("DELETE")) {
+                return output(manager.executeRequest(session,
+                        new AccountRequest("delete account", accountName)));
+            }
+        } else if (numOfSegments <= 3 && segments[3].equals("transactions")) {
+            if (numOfSegments == 2 && method.equals("GET")) {
+                String query = exchange.getRequestURI().getRawQuery();
+                int cursor = intParameter(query, "cursor", Account.FIRST_PAGE);
+                int pageSize = intParameter(query, "size", DEFAULT_PAGE_SIZE);
+                return output(manager.executeRequest(accountName,
+                        new TransactionRequest("display transaction page", cursor, pageSize)));
+            } else if (numOfSegments == 2 && method.equals("POST")) {
+                return output(manager.executeRequest(accountName, transactionRequest(readBody(exchange))));
+            } else if (numOfSegments == 3 && method.equals("DELETE")) {
+                int transactionNumber = Integer.parseInt(segments[4]);
+                return output(manager.executeRequest(accountName,
+                        new TransactionRequest("delete transaction", transactionNumber)));
+            }
+        } else {
+            throw new HttpError(HTTP_NOT_FOUND, "No endpoint is at " + exchange.getRequestURI());
+        }
+        throw new HttpError(HTTP_BAD_METHOD, method + " is not supported by "
+                + exchange.getRequestURI());
+    }
+
+    /**
+     * @return Every loaded account, as {@code {"accounts": [...]}}
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject listAccounts() throws AccountException, InvalidRequestException,
+            TransactionNotFoundException {
+        JSONArray accounts = new JSONArray();
+        if (manager.getNumOfAccountsLoaded() > 0) {
+            for (String current : manager.executeRequest(session, new Request("display account"))
+                    .split("\n")) {
+                accounts.add(current);
+            }
+        }
+        JSONObject response = new JSONObject();
+        response.put("accounts", accounts);
+        return response;
+    }
+
+    /**
+     * @param body The JSON describing a transaction
+     *
+     * @return A request adding the transaction
+     */
+    private static TransactionRequest transactionRequest(JSONObject body) throws HttpError,
+            InvalidRequestException {
+        return new TransactionRequest("add transaction", field(body, "name"),
+                Money.parse(field(body, "fee")), field(body, "category"),
+                LocalDate.parse(field(body, "date")), Integer.parseInt(field(body, "quantity")));
+    }
+
+    /**
+     * Reads the body of an HTTP request as a JSON object
+     *
+     * @param exchange The exchange holding the HTTP request
+     *
+     * @return The JSON object
+     */
+    private static JSONObject readBody(HttpExchange exchange) throws HttpError, IOException,
+            ParseException {
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            Object body = new JSONParser().parse(reader);
+            if (!(body instanceof JSONObject)) {
+                throw new HttpError(HTTP_BAD_REQUEST, "The body must be a JSON object");
+            }
+            return (JSONObject) body;
+        }
+    }
+
+    /**
+     * @param body A JSON object
+     * @param name The name of a field of the object
+     *
+     * @return The value of the field as a string
+     *
+     * @throws HttpError if the object has no such field
+     */
+    private static String field(JSONObject body, String name) throws HttpError {
+        Object value = body.get(name);
+        if (value == null) {
+            throw new HttpError(HTTP_BAD_REQUEST, "The field \"" + name + "\" is missing");
+        }
+        return value.toString();
+    }
+
+    /**
+     * @param query The raw query of a URI, or null
+     * @param name The name of a parameter
+     * @param defaultValue The value used if the parameter is not given
+     *
+     * @return The value of the parameter
+     */
+    private static int intParameter(String query, String name, int defaultValue) {
+        if (query != null) {
+            for (String current : query.split("&")) {
+                if (current.startsWith(name + "=")) {
+                    return Integer.parseInt(decode(current.substring(name.length() + 1)));
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @param segment A URL encoded part of a URI
+     *
+     * @return The decoded text
+     */
+    private static String decode(String segment) {
+        return URLDecoder.decode(segment, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param text The output of a request
+     *
+     * @return The output as {@code {"output": ...}}
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONObject output(String text) {
+        JSONObject response = new JSONObject();
+        response.put("output", text);
+        return response;
+    }
+
+    /**
+     * @param message The reason a request failed
+     *
+     * @return The reason as {@code {"error": ...}}
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONObject error(String message) {
+        JSONObject response = new JSONObject();
+        response.put("error", message);
+        return response;
+    }
+}
@@ -0,0 +1,1122 @@
+package finance;
+
+//imports
+//simple json parser imports
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+//io imports
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Runs performance measurements of the finance package against generated data.
+ * <p>
+ * Usage: {@code Benchmark <name> [arguments]}, where name is one of the
+ * benchmarks listed by running the class without arguments
+ *
+ * @author Dylan Munro
+ */
+public class Benchmark {
+
+    private static final String[] ITEM_NAMES = {"Bicycle", "Gears", "Cake", "Coffee",
+        "Groceries", "Rent", "Gym Membership", "Bus Pass", "Movie Ticket", "Textbook"};
+    private static final String[] CATEGORIES = {"Health/Fitness", "Food", "Housing",
+        "Transportation", "Entertainment", "Education", "Other"};
+
+    /**
+     * Initial method called
+     *
+     * @param args The name of the benchmark followed by its arguments
+     *
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String name = args.length == 0 ? "" : args[0];
+        switch (name) {
+            case "loader":
+                benchmarkLoader(intArg(args, 1, 1000), intArg(args, 2, 1000));
+                break;
+            case "parallel-load":
+                benchmarkParallelLoad(intArg(args, 1, 2000), intArg(args, 2, 500));
+                break;
+            case "startup":
+                benchmarkStartup(intArg(args, 1, 1000), intArg(args, 2, 1000));
+                break;
+            case "lazy":
+                benchmarkLazyLoad(intArg(args, 1, 1000), intArg(args, 2, 1000));
+                break;
+            case "storage":
+                benchmarkStorage(intArg(args, 1, 1_000_000), intArg(args, 2, 1000));
+                break;
+            case "money":
+                benchmarkMoney(intArg(args, 1, 1_000_000));
+                break;
+            case "analytics":
+                benchmarkAnalytics(intArg(args, 1, 200), intArg(args, 2, 20_000));
+                break;
+            case "cache":
+                benchmarkCache(intArg(args, 1, 100), intArg(args, 2, 10_000));
+                break;
+            case "concurrency":
+                benchmarkConcurrency(intArg(args, 1, 64), intArg(args, 2, 200_000));
+                break;
+            case "sessions":
+                benchmarkSessions(intArg(args, 1, 10_000), intArg(args, 2, 100));
+                break;
+            case "http":
+                benchmarkHttp(intArg(args, 1, 16), intArg(args, 2, 2_000));
+                break;
+            case "batch":
+                benchmarkBatch(intArg(args, 1, 100_000), intArg(args, 2, 1_000));
+                break;
+            case "script":
+                benchmarkScript(intArg(args, 1, 100_000));
+                break;
+            default:
+                System.out.println("Available benchmarks:");
+                System.out.println("loader [accounts] [transactions per account]");
+                System.out.println("parallel-load [accounts] [transactions per account]");
+                System.out.println("startup [accounts] [transactions per account]");
+                System.out.println("lazy [accounts] [transactions per account]");
+                System.out.println("storage [transactions] [deletions]");
+                System.out.println("money [transactions]");
+                System.out.println("analytics [accounts] [transactions per account]");
+                System.out.println("cache [accounts] [transactions per account]");
+                System.out.println("concurrency [accounts] [requests per thread count]");
+                System.out.println("sessions [sessions] [accounts]");
+                System.out.println("http [clients] [requests per client]");
+                System.out.println("batch [transactions] [batch size]");
+                System.out.println("script [commands]");
+                break;
+        }
+    }
+
+    /**
+     * Compares loading a generated accounts file through a JSONObject against
+     * streaming it
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkLoader(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            System.out.println("Loading " + numOfAccounts + " accounts with "
+                    + transactionsPerAccount + " transactions each ("
+                    + Files.size(file) / (1024 * 1024) + " MB)");
+            for (int i = 0; i < 3; i++) {
+                measure("JSONObject", () -> {
+                    AccountManager manager = new AccountManager();
+                    try (BufferedReader reader = Files.newBufferedReader(file)) {
+                        manager.generateAccounts((JSONObject) new JSONParser().parse(reader));
+                    }
+                    return manager;
+                });
+                measure("Streaming", () -> {
+                    AccountManager manager = new AccountManager();
+                    try (BufferedReader reader = Files.newBufferedReader(file)) {
+                        manager.generateAccounts(reader);
+                    }
+                    return manager;
+                });
+            }
+            System.out.println(SymbolTable.getGlobal());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Measures the speedup of building streamed accounts on fork-join pools of
+     * increasing size. The file is read into memory first, so only parsing and
+     * building are measured
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkParallelLoad(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        String accountsJson;
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            accountsJson = Files.readString(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Building " + numOfAccounts + " accounts with "
+                + transactionsPerAccount + " transactions each");
+        bestOf(3, () -> new AccountManager().generateAccounts(new StringReader(accountsJson))); //JIT warm-up
+        long sequential = bestOf(3, () -> new AccountManager().generateAccounts(
+                new StringReader(accountsJson)));
+        System.out.printf("sequential   %7d ms%n", sequential / 1_000_000);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads = nextThreadCount(threads, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long elapsed = bestOf(3, () -> new AccountManager().generateAccounts(
+                        new StringReader(accountsJson), pool));
+                System.out.printf("%2d threads   %7d ms   speedup %.2fx%n", threads,
+                        elapsed / 1_000_000, (double) sequential / elapsed);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Compares loading a generated accounts file from JSON against loading it
+     * from a binary snapshot
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkStartup(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        Path snapshot = Files.createTempFile("accounts", ".snap");
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            SnapshotConverter.convert(file, snapshot);
+            System.out.println("Loading " + numOfAccounts + " accounts with "
+                    + transactionsPerAccount + " transactions each (JSON "
+                    + Files.size(file) / (1024 * 1024) + " MB, snapshot "
+                    + Files.size(snapshot) / (1024 * 1024) + " MB)");
+            for (int i = 0; i < 3; i++) {
+                measure("JSON", () -> {
+                    AccountManager manager = new AccountManager();
+                    try (BufferedReader reader = Files.newBufferedReader(file)) {
+                        manager.generateAccounts(reader);
+                    }
+                    return manager;
+                });
+                measure("Snapshot", () -> {
+                    AccountManager manager = new AccountManager();
+                    manager.loadSnapshot(snapshot);
+                    return manager;
+                });
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Compares loading every transaction of a generated accounts file against
+     * loading only its accounts and hydrating one of them
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkLazyLoad(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        Path snapshot = Files.createTempFile("accounts", ".snap");
+        AccountRequest changeRequest = new AccountRequest("change account", "Account 0");
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            SnapshotConverter.convert(file, snapshot);
+            System.out.println("Loading " + numOfAccounts + " accounts with "
+                    + transactionsPerAccount + " transactions each, then selecting one");
+            for (int i = 0; i < 3; i++) {
+                for (boolean isLazy : new boolean[]{false, true}) {
+                    String mode = isLazy ? " lazy" : " eager";
+                    measure("JSON" + mode, () -> {
+                        AccountManager manager = new AccountManager();
+                        manager.generateAccounts(file, isLazy);
+                        manager.executeRequest(changeRequest);
+                        return manager;
+                    });
+                    measure("Snap" + mode, () -> {
+                        AccountManager manager = new AccountManager();
+                        manager.loadSnapshot(snapshot, isLazy);
+                        manager.executeRequest(changeRequest);
+                        return manager;
+                    });
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Compares adding, deleting by position, iterating, and the heap used by
+     * transactions in a LinkedList against a TransactionList
+     *
+     * @param numOfTransactions The number of transactions added
+     * @param numOfDeletions The number of transactions deleted at random positions
+     *
+     * @throws Exception
+     */
+    private static void benchmarkStorage(int numOfTransactions, int numOfDeletions)
+            throws Exception {
+        Transaction[] generated = new Transaction[numOfTransactions];
+        Random random = new Random(42);
+        for (int i = 0; i < numOfTransactions; i++) {
+            generated[i] = new Transaction(ITEM_NAMES[random.nextInt(ITEM_NAMES.length)],
+                    random.nextInt(100000), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    LocalDate.ofEpochDay(random.nextInt(20000)), 1 + random.nextInt(5));
+        }
+        System.out.println(numOfTransactions + " transactions, " + numOfDeletions + " deletions");
+        for (int run = 0; run < 3; run++) {
+            for (List<Transaction> list : Arrays.asList(new LinkedList<Transaction>(),
+                    new TransactionList())) {
+                String label = list.getClass().getSimpleName();
+                long add = bestOf(1, () -> {
+                    for (Transaction current : generated) {
+                        list.add(current);
+                    }
+                });
+                Random positions = new Random(7);
+                long delete = bestOf(1, () -> {
+                    for (int i = 0; i < numOfDeletions; i++) {
+                        list.remove(positions.nextInt(list.size()));
+                    }
+                });
+                long[] quantity = new long[1];
+                long iterate = bestOf(1, () -> {
+                    for (Transaction current : list) {
+                        quantity[0] += current.getQuantity();
+                    }
+                });
+                System.out.printf("%-16s add %6d ms   delete %6d ms   iterate %6d ms%n", label,
+                        add / 1_000_000, delete / 1_000_000, iterate / 1_000_000);
+            }
+        }
+        //Each transaction gets its own strings, as it would when parsed from JSON
+        long linkedListBytes = measure("LinkedList", () -> {
+            LinkedList<Transaction> list = new LinkedList<>();
+            for (Transaction current : generated) {
+                Item item = current.getItem();
+                list.add(new Transaction(new String(item.getName()), item.getFee(),
+                        new String(item.getCategory()), current.getDate(), current.getQuantity()));
+            }
+            return list;
+        });
+        long transactionListBytes = measure("TransactionList", () -> {
+            TransactionList list = new TransactionList();
+            for (Transaction current : generated) {
+                Item item = current.getItem();
+                list.add(new Transaction(new String(item.getName()), item.getFee(),
+                        new String(item.getCategory()), current.getDate(), current.getQuantity()));
+            }
+            return list;
+        });
+        System.out.printf("Heap per transaction: LinkedList %d bytes, TransactionList %d bytes%n",
+                linkedListBytes / numOfTransactions, transactionListBytes / numOfTransactions);
+
+        TransactionList columns = new TransactionList();
+        columns.addAll(Arrays.asList(generated));
+        for (int run = 0; run < 3; run++) {
+            long[] total = new long[1];
+            long objects = bestOf(5, () -> {
+                total[0] = 0;
+                for (Transaction current : columns) {
+                    total[0] += current.getTotalCost();
+                }
+            });
+            long columnar = bestOf(5, () -> total[0] = columns.totalCost());
+            System.out.printf("Total cost scan: iterator %6d us   columns %6d us%n",
+                    objects / 1000, columnar / 1000);
+        }
+    }
+
+    /**
+     * Compares totalling fee multiplied by quantity with fees held as doubles
+     * against fees held as longs of minor units, and reports the rounding error
+     * of the double total.
+     * <p>
+     * Each measurement is repeated after a warm-up so that the JIT has compiled
+     * the loops before the fastest run is reported
+     *
+     * @param numOfTransactions The number of transactions totalled
+     *
+     * @throws Exception
+     */
+    private static void benchmarkMoney(int numOfTransactions) throws Exception {
+        Account account = new Account("Benchmark");
+        double[] doubleFees = new double[numOfTransactions];
+        long[] minorUnitFees = new long[numOfTransactions];
+        int[] quantities = new int[numOfTransactions];
+        Random random = new Random(42);
+        for (int i = 0; i < numOfTransactions; i++) {
+            minorUnitFees[i] = random.nextInt(100000);
+            doubleFees[i] = Money.toDouble(minorUnitFees[i]);
+            quantities[i] = 1 + random.nextInt(5);
+            account.addTransaction(new Transaction(ITEM_NAMES[random.nextInt(ITEM_NAMES.length)],
+                    minorUnitFees[i], CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    LocalDate.ofEpochDay(random.nextInt(20000)), quantities[i]));
+        }
+        double[] doubleTotal = new double[1];
+        long[] minorUnitTotal = new long[1];
+        for (int run = 0; run < 5; run++) {
+            long doubleArray = bestOf(10, () -> {
+                double total = 0;
+                for (int i = 0; i < doubleFees.length; i++) {
+                    total += doubleFees[i] * quantities[i];
+                }
+                doubleTotal[0] = total;
+            });
+            long longArray = bestOf(10, () -> {
+                long total = 0;
+                for (int i = 0; i < minorUnitFees.length; i++) {
+                    total += minorUnitFees[i] * quantities[i];
+                }
+                minorUnitTotal[0] = total;
+            });
+            long accountTotal = bestOf(10, () -> minorUnitTotal[0] = account.getTotalCost());
+            System.out.printf("double[] %6d us   long[] %6d us   Account.getTotalCost %6d us%n",
+                    doubleArray / 1000, longArray / 1000, accountTotal / 1000);
+        }
+        System.out.println("Exact total:  " + Money.toString(minorUnitTotal[0]));
+        System.out.println("Double total: " + new BigDecimal(doubleTotal[0]).toPlainString());
+    }
+
+    /**
+     * Measures the speedup of totalling the spending of every account on
+     * fork-join pools of increasing size, and checks that every pool size
+     * produces the same report
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkAnalytics(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        AccountManager manager = new AccountManager();
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                manager.generateAccounts(reader);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.println("Totalling " + numOfAccounts + " accounts with "
+                + transactionsPerAccount + " transactions each");
+        String expected = null;
+        long single = 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads = nextThreadCount(threads, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                String report = manager.analyzeAccounts(pool).toString();
+                if (expected == null) {
+                    expected = report;
+                } else if (!expected.equals(report)) {
+                    throw new IllegalStateException("The report built by " + threads
+                            + " threads differs from the report built by 1 thread");
+                }
+                bestOf(3, () -> manager.analyzeAccounts(pool)); //JIT warm-up
+                long elapsed = bestOf(5, () -> manager.analyzeAccounts(pool));
+                single = threads == 1 ? elapsed : single;
+                System.out.printf("%2d threads   %7d ms   speedup %.2fx%n", threads,
+                        elapsed / 1_000_000, (double) single / elapsed);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        System.out.println("Every pool size produced the same report");
+    }
+
+    /**
+     * Measures repeated read-only requests against the result cache while
+     * another account is modified between them, then modifies the active
+     * account and measures the same requests again
+     *
+     * @param numOfAccounts The number of accounts in the generated file
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws Exception
+     */
+    private static void benchmarkCache(int numOfAccounts, int transactionsPerAccount)
+            throws Exception {
+        Path file = Files.createTempFile("accounts", ".json");
+        AccountManager manager = new AccountManager();
+        try {
+            writeAccountsFile(file, numOfAccounts, transactionsPerAccount);
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                manager.generateAccounts(reader);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        Request[] reads = {
+            new Request("display spending"),
+            new Request("display approximate stats"),
+            new TransactionRequest("display transaction largest", 10, false),
+            new TransactionRequest("query transaction",
+                    TransactionQuery.compile("category = Food and fee > 500 order by cost desc limit 20"))
+        };
+        TransactionRequest addRequest = new TransactionRequest("add transaction", "Coffee",
+                350, "Food", LocalDate.of(2020, 1, 1), 1);
+        AccountRequest otherAccount = new AccountRequest("change account", "Account 1");
+        AccountRequest activeAccount = new AccountRequest("change account", "Account 0");
+        System.out.println("Reading one of " + numOfAccounts + " accounts with "
+                + transactionsPerAccount + " transactions each");
+        manager.executeRequest(activeAccount);
+        for (int round = 0; round < 3; round++) {
+            long first = bestOf(1, () -> executeAll(manager, reads));
+            long repeated = bestOf(5, () -> executeAll(manager, reads));
+            System.out.printf("first %7d us   repeated %7d us%n", first / 1000, repeated / 1000);
+            manager.executeRequest(otherAccount);
+            manager.executeRequest(addRequest); //Leaves the cached outputs of Account 0 valid
+            manager.executeRequest(activeAccount);
+            bestOf(1, () -> executeAll(manager, reads));
+            manager.executeRequest(addRequest); //Invalidates the cached outputs of Account 0
+        }
+        System.out.println(manager.getResultCache());
+    }
+
+    /**
+     * Measures the throughput of threads sharing one account manager, with
+     * three reads for every added transaction. Each thread count is measured
+     * with every thread using its own accounts and with every thread using the
+     * same account, then the number of transactions added is checked
+     *
+     * @param numOfAccounts The number of accounts the threads use
+     * @param numOfRequests The number of requests divided between the threads
+     *
+     * @throws Exception
+     */
+    private static void benchmarkConcurrency(int numOfAccounts, int numOfRequests)
+            throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = Math.max(4, 2 * cores);
+        System.out.println(numOfRequests + " requests with 3 reads per write on "
+                + cores + " processors");
+        AccountManager warmUp = new AccountManager();
+        warmUp.executeRequest(new AccountRequest("add account", "Account 0"));
+        runThreads(warmUp, 1, numOfRequests, 1, true); //JIT warm-up
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            for (boolean isShared : new boolean[]{false, true}) {
+                AccountManager manager = new AccountManager();
+                for (int i = 0; i < numOfAccounts; i++) {
+                    manager.executeRequest(new AccountRequest("add account", "Account " + i));
+                }
+                int requestsPerThread = numOfRequests / threads;
+                long elapsed = runThreads(manager, threads, requestsPerThread, numOfAccounts, isShared);
+                int expected = threads * (requestsPerThread / 4);
+                int added = 0;
+                for (int i = 0; i < numOfAccounts; i++) {
+                    manager.executeRequest(new AccountRequest("change account", "Account " + i));
+                    Request spending = new TransactionRequest("display transaction total",
+                            LocalDate.MIN, LocalDate.MAX);
+                    String total = manager.executeRequest(spending);
+                    added += Integer.parseInt(total.substring(total.indexOf(": ") + 2,
+                            total.indexOf('\n')));
+                }
+                if (added != expected) {
+                    throw new IllegalStateException(added + " transactions were added instead of "
+                            + expected);
+                }
+                System.out.printf("%2d threads   %-16s %9.0f requests/s%n", threads,
+                        isShared ? "shared account" : "own accounts",
+                        (double) threads * requestsPerThread * 1_000_000_000 / elapsed);
+            }
+        }
+        System.out.println("Every added transaction was counted");
+    }
+
+    /**
+     * Measures opening and finding sessions, then has threads add transactions
+     * through many sessions of one account manager, each session with its own
+     * active account, and checks that every transaction was added to the
+     * account of its session
+     *
+     * @param numOfSessions The number of sessions opened
+     * @param numOfAccounts The number of accounts the sessions select from
+     *
+     * @throws Exception
+     */
+    private static void benchmarkSessions(int numOfSessions, int numOfAccounts) throws Exception {
+        AccountManager manager = new AccountManager();
+        for (int i = 0; i < numOfAccounts; i++) {
+            manager.executeRequest(new AccountRequest("add account", "Account " + i));
+        }
+        Session[] sessions = new Session[numOfSessions];
+        long start = System.nanoTime();
+        for (int i = 0; i < numOfSessions; i++) {
+            sessions[i] = manager.openSession();
+        }
+        long opened = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (Session current : sessions) {
+            manager.getSession(current.getId());
+        }
+        long found = System.nanoTime() - start;
+        System.out.printf("%d sessions   open %.0f ns each   find %.0f ns each%n", numOfSessions,
+                (double) opened / numOfSessions, (double) found / numOfSessions);
+        String[] accountNames = new String[numOfSessions];
+        Random random = new Random(42);
+        for (int i = 0; i < numOfSessions; i++) {
+            accountNames[i] = "Account " + random.nextInt(numOfAccounts);
+            manager.executeRequest(sessions[i], new AccountRequest("change account", accountNames[i]));
+        }
+        TransactionRequest addRequest = new TransactionRequest("add transaction", "Coffee",
+                350, "Food", LocalDate.of(2020, 1, 1), 1);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = Math.max(4, 2 * cores);
+        Thread[] workers = new Thread[threads];
+        Exception[] failures = new Exception[threads];
+        CountDownLatch ready = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    ready.await();
+                    for (int i = thread; i < numOfSessions; i += threads) {
+                        Session session = manager.getSession(sessions[i].getId());
+                        String output = manager.executeRequest(session, addRequest);
+                        if (!output.endsWith("\"" + accountNames[i] + "\"")) {
+                            throw new IllegalStateException("Session " + session.getId()
+                                    + " added to the wrong account: " + output);
+                        }
+                    }
+                } catch (Exception e) {
+                    failures[thread] = e;
+                }
+            });
+            workers[t].start();
+        }
+        start = System.nanoTime();
+        ready.countDown();
+        for (Thread current : workers) {
+            current.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Exception current : failures) {
+            if (current != null) {
+                throw current;
+            }
+        }
+        System.out.printf("%d threads   %.0f requests/s through separate sessions%n", threads,
+                numOfSessions * 1_000_000_000.0 / elapsed);
+        for (Session current : sessions) {
+            manager.closeSession(current);
+        }
+        if (manager.getNumOfSessions() != 0) {
+            throw new IllegalStateException(manager.getNumOfSessions() + " sessions were not closed");
+        }
+        System.out.println("Every transaction was added to the account of its session");
+    }
+
+    /**
+     * Load tests an ApiServer on localhost. Each client adds transactions to
+     * its own account and reads pages of them, with three reads for every
+     * write, and waits for each response before sending its next request.
+     * The first round warms up the server and is not reported
+     *
+     * @param numOfClients The number of clients sending requests at once
+     * @param requestsPerClient The number of requests sent by each client
+     *
+     * @throws Exception
+     */
+    private static void benchmarkHttp(int numOfClients, int requestsPerClient) throws Exception {
+        AccountManager manager = new AccountManager();
+        int numOfThreads = Runtime.getRuntime().availableProcessors();
+        ApiServer server = new ApiServer(manager, 0, numOfThreads);
+        server.start();
+        try {
+            String base = "http://localhost:" + server.getPort() + "/accounts";
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            for (int i = 0; i < numOfClients; i++) {
+                send(client, HttpRequest.newBuilder(URI.create(base))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"name\": \"Client" + i + "\"}"))
+                        .build());
+            }
+            System.out.println(numOfClients + " clients sending " + requestsPerClient
+                    + " requests each to " + numOfThreads + " server threads");
+            for (int round = 0; round < 2; round++) {
+                long[] latencies = new long[numOfClients * requestsPerClient];
+                Thread[] clients = new Thread[numOfClients];
+                Exception[] failures = new Exception[numOfClients];
+                CountDownLatch ready = new CountDownLatch(1);
+                for (int c = 0; c < numOfClients; c++) {
+                    int clientNumber = c;
+                    URI transactions = URI.create(base + "/Client" + c + "/transactions");
+                    URI page = URI.create(base + "/Client" + c + "/transactions?size=10");
+                    clients[c] = new Thread(() -> {
+                        try {
+                            ready.await();
+                            for (int i = 0; i < requestsPerClient; i++) {
+                                HttpRequest request = i % 4 == 0
+                                        ? HttpRequest.newBuilder(transactions).POST(
+                                                HttpRequest.BodyPublishers.ofString("{\"name\": \"Coffee\", "
+                                                + "\"fee\": 3.5, \"category\": \"Food\", "
+                                                + "\"date\": \"2020-01-01\", \"quantity\": 1}")).build()
+                                        : HttpRequest.newBuilder(page).GET().build();
+                                long start = System.nanoTime();
+                                send(client, request);
+                                latencies[clientNumber * requestsPerClient + i] = System.nanoTime() - start;
+                            }
+                        } catch (Exception e) {
+                            failures[clientNumber] = e;
+                        }
+                    });
+                    clients[c].start();
+                }
+                long start = System.nanoTime();
+                ready.countDown();
+                for (Thread current : clients) {
+                    current.join();
+                }
+                long elapsed = System.nanoTime() - start;
+                for (Exception current : failures) {
+                    if (current != null) {
+                        throw current;
+                    }
+                }
+                if (round > 0) {
+                    Arrays.sort(latencies);
+                    System.out.printf("%.0f requests/s   p50 %.2f ms   p99 %.2f ms   max %.2f ms%n",
+                            latencies.length * 1_000_000_000.0 / elapsed,
+                            latencies[latencies.length / 2] / 1e6,
+                            latencies[(int) (latencies.length * 0.99)] / 1e6,
+                            latencies[latencies.length - 1] / 1e6);
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Sends an HTTP request and checks that it succeeded
+     *
+     * @param client The client sending the request
+     * @param request The request
+     *
+     * @throws Exception if the request failed
+     */
+    private static void send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " failed: "
+                    + response.body());
+        }
+    }
+
+    /**
+     * Measures adding transactions to an account one request at a time, in
+     * batches, and in a single batch, first in memory and then with every
+     * change recorded in a journal. The first round warms up the JIT and is
+     * not reported
+     *
+     * @param numOfTransactions The number of transactions added
+     * @param batchSize The number of transactions in each batch
+     *
+     * @throws Exception
+     */
+    private static void benchmarkBatch(int numOfTransactions, int batchSize) throws Exception {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        List<TransactionRequest> requests = new ArrayList<>(numOfTransactions);
+        for (int i = 0; i < numOfTransactions; i++) {
+            requests.add(new TransactionRequest("add transaction",
+                    ITEM_NAMES[random.nextInt(ITEM_NAMES.length)], random.nextInt(100000),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    start.plusDays(random.nextInt(8000)), 1 + random.nextInt(5)));
+        }
+        System.out.println("Adding " + numOfTransactions + " transactions to one account");
+        for (int round = 0; round < 2; round++) {
+            for (boolean isJournaled : new boolean[] {false, true}) {
+                long single = timeInserts(requests, 1, isJournaled);
+                long batched = timeInserts(requests, batchSize, isJournaled);
+                long whole = timeInserts(requests, numOfTransactions, isJournaled);
+                if (round > 0) {
+                    System.out.printf("%-10s single %9.0f/s   batches of %d %9.0f/s   "
+                            + "one batch %9.0f/s%n", isJournaled ? "journaled" : "in memory",
+                            numOfTransactions * 1e9 / single, batchSize,
+                            numOfTransactions * 1e9 / batched, numOfTransactions * 1e9 / whole);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures running a script through IO against executing the same requests
+     * directly, so the cost of reading, parsing, and writing commands can be
+     * seen. The script adds transactions and totals them after every tenth
+     * one. Each is timed as the fastest of three runs, and the first round
+     * warms up the JIT and is not reported
+     *
+     * @param numOfCommands The number of commands in the script
+     *
+     * @throws Exception
+     */
+    private static void benchmarkScript(int numOfCommands) throws Exception {
+        Random random = new Random(42);
+        Parser parser = new Parser();
+        StringBuilder script = new StringBuilder("add account Script\n");
+        for (int i = 1; i < numOfCommands; i++) {
+            if (i % 10 == 0) {
+                script.append("display transaction total 2000-01-01 | 2030-01-01\n");
+            } else {
+                script.append("add transaction ").append(ITEM_NAMES[random.nextInt(ITEM_NAMES.length)])
+                        .append(" | ").append(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                        .append(" | ").append(random.nextInt(100000) / 100.0)
+                        .append(" | ").append(1 + random.nextInt(5))
+                        .append(" | ").append(LocalDate.of(2000, 1, 1).plusDays(random.nextInt(8000)))
+                        .append('\n');
+            }
+        }
+        List<Request> requests = new ArrayList<>(numOfCommands);
+        for (String current : script.toString().split("\n")) {
+            requests.add(parser.parseCommand(current));
+        }
+        System.out.println("Running " + numOfCommands + " commands");
+        for (int round = 0; round < 2; round++) {
+            long direct = bestOf(3, () -> {
+                AccountManager manager = new AccountManager();
+                Writer output = Writer.nullWriter();
+                for (Request current : requests) {
+                    manager.executeRequest(current, output);
+                }
+            });
+            long scripted = bestOf(3, () -> {
+                int numOfFailures = new IO().runScript(
+                        new BufferedReader(new StringReader(script.toString())), Writer.nullWriter());
+                if (numOfFailures > 0) {
+                    throw new IllegalStateException(numOfFailures + " commands failed");
+                }
+            });
+            if (round > 0) {
+                System.out.printf("requests %9.0f/s   script %9.0f/s%n",
+                        numOfCommands * 1e9 / direct, numOfCommands * 1e9 / scripted);
+            }
+        }
+    }
+
+    /**
+     * Adds transactions to a new account, checking that every one was added
+     *
+     * @param requests The requests adding the transactions
+     * @param batchSize The number of requests in each batch, or 1 to execute
+     * each request on its own
+     * @param isJournaled true if the changes are recorded in a journal
+     *
+     * @return The time taken to add the transactions in nanoseconds
+     *
+     * @throws Exception
+     */
+    private static long timeInserts(List<TransactionRequest> requests, int batchSize,
+            boolean isJournaled) throws Exception {
+        AccountManager manager = new AccountManager();
+        Path directory = isJournaled ? Files.createTempDirectory("journal") : null;
+        try {
+            if (isJournaled) {
+                manager.openJournal(directory);
+            }
+            manager.executeRequest(new AccountRequest("add account", "Batch"));
+            long begin = System.nanoTime();
+            int lastNumber = 0;
+            if (batchSize == 1) {
+                for (TransactionRequest current : requests) {
+                    manager.executeRequest("Batch", current);
+                }
+                lastNumber = requests.size();
+            } else {
+                for (int i = 0; i < requests.size(); i += batchSize) {
+                    int[] numbers = manager.executeBatch("Batch",
+                            requests.subList(i, Math.min(i + batchSize, requests.size())));
+                    lastNumber = numbers[numbers.length - 1];
+                }
+            }
+            long elapsed = System.nanoTime() - begin;
+            if (lastNumber != requests.size()) {
+                throw new IllegalStateException("Only " + lastNumber + " transactions were added");
+            }
+            return elapsed;
+        } finally {
+            if (isJournaled) {
+                manager.closeJournal();
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory holding only files
+     *
+     * @param directory The directory being deleted
+     *
+     * @throws IOException
+     */
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path current : (Iterable<Path>) files::iterator) {
+                Files.delete(current);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Runs threads making requests on one account manager until each has
+     * made its requests
+     *
+     * @param manager The manager shared by the threads
+     * @param threads The number of threads
+     * @param requestsPerThread The number of requests each thread makes
+     * @param numOfAccounts The number of accounts in the manager
+     * @param isShared true if every thread uses Account 0, false if each
+     * thread uses the accounts whose numbers leave its own remainder
+     *
+     * @return The time taken by the slowest thread in nanoseconds
+     *
+     * @throws Exception
+     */
+    private static long runThreads(AccountManager manager, int threads, int requestsPerThread,
+            int numOfAccounts, boolean isShared) throws Exception {
+        TransactionRequest addRequest = new TransactionRequest("add transaction", "Coffee",
+                350, "Food", LocalDate.of(2020, 1, 1), 1);
+        Thread[] workers = new Thread[threads];
+        Exception[] failures = new Exception[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        int accountsPerThread = Math.max(1, numOfAccounts / threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(thread);
+                try {
+                    start.await();
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        int account = isShared ? 0
+                                : (thread + threads * random.nextInt(accountsPerThread)) % numOfAccounts;
+                        String accountName = "Account " + account;
+                        if (i % 4 == 3) {
+                            manager.executeRequest(accountName, addRequest);
+                        } else {
+                            LocalDate from = LocalDate.of(2019, 1, 1).plusDays(random.nextInt(730));
+                            manager.executeRequest(accountName, new TransactionRequest(
+                                    "display transaction total", from, from.plusDays(30)));
+                        }
+                    }
+                } catch (Exception e) {
+                    failures[thread] = e;
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread current : workers) {
+            current.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        for (Exception current : failures) {
+            if (current != null) {
+                throw current;
+            }
+        }
+        return elapsed;
+    }
+
+    /**
+     * @param manager The manager executing the requests
+     * @param requests The requests being executed in order
+     *
+     * @throws Exception
+     */
+    private static void executeAll(AccountManager manager, Request[] requests) throws Exception {
+        for (Request current : requests) {
+            manager.executeRequest(current);
+        }
+    }
+
+    /**
+     * @param threads The thread count which was just measured
+     * @param cores The number of available processors
+     *
+     * @return The next thread count to measure, doubling up to the number of processors
+     */
+    private static int nextThreadCount(int threads, int cores) {
+        return threads < cores && threads * 2 > cores ? cores : threads * 2;
+    }
+
+    /**
+     * A unit of work measured only by its duration
+     */
+    private interface Action {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs an action several times
+     *
+     * @param runs The number of times the action is run
+     * @param action The action being measured
+     *
+     * @return The shortest duration of the action in nanoseconds
+     *
+     * @throws Exception
+     */
+    private static long bestOf(int runs, Action action) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * A unit of work whose result is kept alive until its memory is measured
+     */
+    private interface Task {
+
+        Object run() throws Exception;
+    }
+
+    /**
+     * Runs a task and prints its duration, peak heap usage, and the heap
+     * retained by its result
+     *
+     * @param label The name printed beside the measurements
+     * @param task The task being measured
+     *
+     * @return The number of bytes retained by the result
+     *
+     * @throws Exception
+     */
+    private static long measure(String label, Task task) throws Exception {
+        long baseline = usedHeapAfterGC();
+        resetPeakHeap();
+        long start = System.nanoTime();
+        Object result = task.run();
+        long elapsed = System.nanoTime() - start;
+        long peak = peakHeap();
+        long retained = usedHeapAfterGC();
+        System.out.printf("%-12s time %7d ms   peak heap %6d MB   retained %6d MB%n", label,
+                elapsed / 1_000_000, (peak - baseline) / (1024 * 1024),
+                (retained - baseline) / (1024 * 1024));
+        if (result == null) {
+            System.out.println("No result was produced");
+        }
+        return retained - baseline;
+    }
+
+    /**
+     * Writes an accounts file in the format read by IO
+     *
+     * @param file The file being written
+     * @param numOfAccounts The number of accounts written
+     * @param transactionsPerAccount The number of transactions in each account
+     *
+     * @throws IOException
+     */
+    static void writeAccountsFile(Path file, int numOfAccounts, int transactionsPerAccount)
+            throws IOException {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2000, 1, 1);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"accounts\": [\n");
+            for (int i = 0; i < numOfAccounts; i++) {
+                writer.write(i == 0 ? "" : ",\n");
+                writer.write("{\"name\": \"Account " + i + "\", \"transactions\": [\n");
+                for (int j = 0; j < transactionsPerAccount; j++) {
+                    writer.write(j == 0 ? "" : ",\n");
+                    writer.write("{\"item\": {\"name\": \""
+                            + ITEM_NAMES[random.nextInt(ITEM_NAMES.length)]
+                            + "\", \"fee\": " + random.nextInt(100000) / 100.0
+                            + ", \"category\": \"" + CATEGORIES[random.nextInt(CATEGORIES.length)]
+                            + "\"}, \"date\": \"" + start.plusDays(random.nextInt(8000))
+                            + "\", \"quantity\": " + (1 + random.nextInt(5)) + "}");
+                }
+                writer.write("]}");
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+    /**
+     * Parses an optional integer argument
+     *
+     * @param args The command line arguments
+     * @param index The position of the argument
+     * @param defaultValue The value used if the argument was not given
+     *
+     * @return The value of the argument
+     */
+    static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    /**
+     * @return The number of bytes used on the heap after a garbage collection
+     */
+    private static long usedHeapAfterGC() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Resets the peak usage of every heap memory pool
+     */
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return The sum of the peak usage of every heap memory pool
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,165 @@
+package finance;
+
+//imports
+import java.util.Arrays;
+
+/**
+ * Creates a priority queue keeping only the k highest ranked of the entries
+ * offered to it.
+ * <p>
+ * Each entry is a long key and an int value, such as the cost and row id of a
+ * transaction. Larger keys rank higher, and entries with equal keys rank in
+ * increasing order of value, so the ranking never depends on the order the
+ * entries are offered in. The queue is a min-heap of the k entries ranked
+ * highest so far, stored in two arrays, so finding the top k of n entries
+ * takes O(n log k) time and O(k) memory
+ *
+ * @author Dylan Munro
+ */
+public class BoundedHeap {
+
+    private final long[] keys;
+    private final int[] values;
+    private int size;
+
+    /**
+     * @param capacity The largest number of entries kept
+     */
+    public BoundedHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity " + capacity + " is negative");
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Offers an entry to the queue in O(log k). The entry is kept if the queue
+     * is not full or if it ranks above the lowest ranked entry kept
+     *
+     * @param key The key of the entry
+     * @param value The value of the entry
+     */
+    public void offer(long key, int value) {
+        if (size < keys.length) {
+            keys[size] = key;
+            values[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && ranksAbove(key, value, 0)) {
+            keys[0] = key;
+            values[0] = value;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return The number of entries kept
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the entries kept in O(k log k)
+     *
+     * @return The values of the entries kept, highest ranked first
+     */
+    public int[] getValues() {
+        long[][] entries = sortedEntries();
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = (int) entries[i][1];
+        }
+        return sorted;
+    }
+
+    /**
+     * Sorts the entries kept in O(k log k)
+     *
+     * @return The keys of the entries kept, highest ranked first
+     */
+    public long[] getKeys() {
+        long[][] entries = sortedEntries();
+        long[] sorted = new long[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = entries[i][0];
+        }
+        return sorted;
+    }
+
+    /**
+     * @return Every entry kept as a {key, value} pair, highest ranked first
+     */
+    private long[][] sortedEntries() {
+        long[][] entries = new long[size][];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new long[]{keys[i], values[i]};
+        }
+        Arrays.sort(entries, (first, second) -> first[0] != second[0]
+                ? Long.compare(second[0], first[0]) : Long.compare(first[1], second[1]));
+        return entries;
+    }
+
+    /**
+     * @param key The key of an entry
+     * @param value The value of the entry
+     * @param position The position of another entry in the heap
+     *
+     * @return true if the entry ranks above the entry at the position
+     */
+    private boolean ranksAbove(long key, int value, int position) {
+        return key != keys[position] ? key > keys[position] : value < values[position];
+    }
+
+    /**
+     * Moves an entry towards the root until its parent ranks below it
+     *
+     * @param position The position of the entry
+     */
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (ranksAbove(keys[position], values[position], parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Moves an entry away from the root until both of its children rank above it
+     *
+     * @param position The position of the entry
+     */
+    private void siftDown(int position) {
+        while (true) {
+            int lowest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (ranksAbove(keys[lowest], values[lowest], child)) {
+                    lowest = child;
+                }
+            }
+            if (lowest == position) {
+                return;
+            }
+            swap(position, lowest);
+            position = lowest;
+        }
+    }
+
+    /**
+     * Swaps two entries of the heap
+     *
+     * @param first The position of one entry
+     * @param second The position of the other entry
+     */
+    private void swap(int first, int second) {
+        long key = keys[first];
+        keys[first] = keys[second];
+        keys[second] = key;
+        int value = values[first];
+        values[first] = values[second];
+        values[second] = value;
+    }
+}
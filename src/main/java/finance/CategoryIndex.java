@@ -0,0 +1,170 @@
+package finance;
+
+//imports
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Creates an inverted index from each category of an account to its
+ * transactions.
+ * <p>
+ * Every category keeps the row ids of its transactions, given by the account's
+ * {@link TransactionList}, along with a running count and total cost which are
+ * updated as transactions are added and removed. Totals by category are
+ * therefore read in O(number of categories), without visiting any transaction
+ *
+ * @author Dylan Munro
+ */
+public class CategoryIndex {
+
+    //Private Constants
+    private static final int INITIAL_CAPACITY = 8;
+
+    //Categories are kept in the order they were first used
+    private final LinkedHashMap<String, Entry> categories = new LinkedHashMap<>();
+
+    /**
+     * Holds the transactions and running totals of a single category
+     */
+    private static final class Entry {
+
+        private int[] rowIds = new int[INITIAL_CAPACITY]; //In increasing order
+        private int size;
+        private long totalCost;
+    }
+
+    /**
+     * Describes the number of transactions and total cost of a category
+     */
+    public static class CategoryTotal {
+
+        private final String category;
+        private final int numOfTransactions;
+        private final long totalCost;
+
+        /**
+         * @param category The name of the category
+         * @param numOfTransactions The number of transactions in the category
+         * @param totalCost The total cost of the transactions in minor units
+         */
+        public CategoryTotal(String category, int numOfTransactions, long totalCost) {
+            this.category = category;
+            this.numOfTransactions = numOfTransactions;
+            this.totalCost = totalCost;
+        }
+
+        /**
+         * @return The name of the category
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * @return The number of transactions in the category
+         */
+        public int getNumOfTransactions() {
+            return numOfTransactions;
+        }
+
+        /**
+         * @return The total cost of the transactions in the category in minor units
+         */
+        public long getTotalCost() {
+            return totalCost;
+        }
+
+        /**
+         * @return The category, number of transactions, and total cost formatted as a string
+         */
+        @Override
+        public String toString() {
+            return "Category: " + category
+                    + "\nTransactions: " + numOfTransactions
+                    + "\nTotal spent: " + Money.toString(totalCost);
+        }
+    }
+
+    /**
+     * Adds a transaction to its category. Transactions must be added in
+     * increasing order of row id, as they are by {@link TransactionList}
+     *
+     * @param category The category of the transaction
+     * @param rowId The row id of the transaction
+     * @param cost The total cost of the transaction in minor units
+     */
+    public void add(String category, int rowId, long cost) {
+        Entry entry = categories.get(category);
+        if (entry == null) {
+            entry = new Entry();
+            categories.put(category, entry);
+        }
+        if (entry.size == entry.rowIds.length) {
+            entry.rowIds = Arrays.copyOf(entry.rowIds, entry.size * 2);
+        }
+        entry.rowIds[entry.size++] = rowId;
+        entry.totalCost += cost;
+    }
+
+    /**
+     * Removes a transaction from its category. A category is forgotten once
+     * its last transaction is removed
+     *
+     * @param category The category of the transaction
+     * @param rowId The row id of the transaction
+     * @param cost The total cost of the transaction in minor units
+     *
+     * @return true if the transaction was in the index, false otherwise
+     */
+    public boolean remove(String category, int rowId, long cost) {
+        Entry entry = categories.get(category);
+        if (entry == null) {
+            return false;
+        }
+        int position = Arrays.binarySearch(entry.rowIds, 0, entry.size, rowId);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(entry.rowIds, position + 1, entry.rowIds, position,
+                entry.size - position - 1);
+        entry.size--;
+        entry.totalCost -= cost;
+        if (entry.size == 0) {
+            categories.remove(category);
+        }
+        return true;
+    }
+
+    /**
+     * @param category The name of a category
+     *
+     * @return The row ids of the transactions in the category in the order
+     * they were added, or an empty array if the category has no transactions
+     */
+    public int[] getRowIds(String category) {
+        Entry entry = categories.get(category);
+        return entry == null ? new int[0] : Arrays.copyOf(entry.rowIds, entry.size);
+    }
+
+    /**
+     * Reads the running totals of every category in O(number of categories)
+     *
+     * @return The totals of every category with transactions, in the order the
+     * categories were first used
+     */
+    public List<CategoryTotal> getTotals() {
+        List<CategoryTotal> totals = new ArrayList<>(categories.size());
+        categories.forEach((category, entry) ->
+                totals.add(new CategoryTotal(category, entry.size, entry.totalCost)));
+        return totals;
+    }
+
+    /**
+     * @return The number of categories with transactions
+     */
+    public int size() {
+        return categories.size();
+    }
+}
@@ -0,0 +1,73 @@
+package finance;
+
+/**
+ * Creates a count-min sketch estimating how often each value was counted.
+ * <p>
+ * Every value is counted in one cell of each of DEPTH rows of WIDTH cells,
+ * chosen by a different hash for each row, and its count is estimated as the
+ * smallest of its cells. Values sharing a cell can only make the estimate too
+ * large. With probability 1 - e^-DEPTH (about 98%), the estimate exceeds the
+ * true count by at most e / WIDTH of the total count (about 0.13%). Counts can
+ * also be decreased when a counted value is removed
+ *
+ * @author Dylan Munro
+ */
+public class CountMinSketch {
+
+    //Private Constants
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 2048;
+
+    //Public Constants
+    public static final double ERROR = Math.E / WIDTH;
+    public static final double CONFIDENCE = 1 - Math.exp(-DEPTH);
+
+    private final int[] cells = new int[DEPTH * WIDTH];
+    private long total;
+
+    /**
+     * Adds to the count of a value in O(DEPTH)
+     *
+     * @param value The value, such as the symbol id of a category
+     * @param delta The change in the value's count
+     */
+    public void add(long value, int delta) {
+        for (int row = 0; row < DEPTH; row++) {
+            cells[cellOf(value, row)] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * Estimates the count of a value in O(DEPTH)
+     *
+     * @param value The value
+     *
+     * @return The estimated count, which is never smaller than the true count
+     */
+    public long estimate(long value) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, cells[cellOf(value, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return The sum of every count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param value A value
+     * @param row A row of the sketch
+     *
+     * @return The position of the value's cell in the row
+     */
+    private static int cellOf(long value, int row) {
+        long hash = HyperLogLog.mix(value * DEPTH + row);
+        return row * WIDTH + (int) ((hash >>> 1) % WIDTH);
+    }
+}
@@ -0,0 +1,243 @@
+package finance;
+
+//imports
+import java.util.Arrays;
+
+/**
+ * Creates prefix sums of the number of transactions and total cost of an
+ * account on each day.
+ * <p>
+ * The distinct days with transactions are kept in increasing order, and two
+ * Fenwick trees are kept over their positions, one counting transactions and
+ * one summing their costs. The number and total cost of the transactions
+ * between any two dates are found in O(log d), where d is the number of
+ * distinct days, and a transaction on a day already seen is added or removed
+ * in O(log d). A new day after every other day is appended in amortized
+ * O(log d), while a new day between two others rebuilds the trees in O(d).
+ * Memory is proportional to the number of distinct days rather than to the
+ * span of the account's dates
+ *
+ * @author Dylan Munro
+ */
+public class DailySpending {
+
+    //Private Constants
+    private static final int INITIAL_NUM_OF_DAYS = 16;
+
+    private int[] days; //Distinct epoch days in increasing order
+    private int numOfDays;
+    private int[] countTree; //Fenwick trees indexed from 1 by the position of each day
+    private long[] costTree;
+
+    /**
+     * Creates prefix sums without any transactions
+     */
+    public DailySpending() {
+        days = new int[INITIAL_NUM_OF_DAYS];
+        countTree = new int[INITIAL_NUM_OF_DAYS + 1];
+        costTree = new long[INITIAL_NUM_OF_DAYS + 1];
+    }
+
+    /**
+     * Creates prefix sums of many transactions at once in O(n log d), whatever
+     * the order of their dates
+     *
+     * @param epochDays The epoch day of each transaction's date
+     * @param costs The total cost of each transaction in minor units
+     */
+    public DailySpending(int[] epochDays, long[] costs) {
+        int[] sorted = epochDays.clone();
+        Arrays.sort(sorted);
+        for (int day : sorted) {
+            if (numOfDays == 0 || sorted[numOfDays - 1] != day) {
+                sorted[numOfDays++] = day;
+            }
+        }
+        days = Arrays.copyOf(sorted, Math.max(numOfDays, INITIAL_NUM_OF_DAYS));
+        countTree = new int[days.length + 1];
+        costTree = new long[days.length + 1];
+        for (int i = 0; i < epochDays.length; i++) {
+            int index = Arrays.binarySearch(days, 0, numOfDays, epochDays[i]) + 1;
+            countTree[index]++;
+            costTree[index] += costs[i];
+        }
+        build();
+    }
+
+    /**
+     * Adds a transaction to the day it was made
+     *
+     * @param epochDay The epoch day of the transaction's date
+     * @param cost The total cost of the transaction in minor units
+     */
+    public void add(int epochDay, long cost) {
+        int position = Arrays.binarySearch(days, 0, numOfDays, epochDay);
+        if (position < 0) {
+            position = insertDay(epochDay, -position - 1);
+        }
+        update(position + 1, 1, cost);
+    }
+
+    /**
+     * Removes a transaction from the day it was made
+     *
+     * @param epochDay The epoch day of the transaction's date
+     * @param cost The total cost of the transaction in minor units
+     */
+    public void remove(int epochDay, long cost) {
+        int position = Arrays.binarySearch(days, 0, numOfDays, epochDay);
+        if (position < 0) {
+            throw new IllegalArgumentException("No transaction was added on epoch day " + epochDay);
+        }
+        update(position + 1, -1, -cost);
+    }
+
+    /**
+     * Counts the transactions made between two dates in O(log d)
+     *
+     * @param startEpochDay The epoch day of the first date in the range
+     * @param endEpochDay The epoch day of the last date in the range
+     *
+     * @return The number of transactions in the range
+     */
+    public int getCount(int startEpochDay, int endEpochDay) {
+        if (startEpochDay > endEpochDay) {
+            return 0;
+        }
+        return countBefore(endEpochDay + 1L) - countBefore(startEpochDay);
+    }
+
+    /**
+     * Totals the cost of the transactions made between two dates in O(log d)
+     *
+     * @param startEpochDay The epoch day of the first date in the range
+     * @param endEpochDay The epoch day of the last date in the range
+     *
+     * @return The total cost of the transactions in the range in minor units
+     */
+    public long getTotalCost(int startEpochDay, int endEpochDay) {
+        if (startEpochDay > endEpochDay) {
+            return 0;
+        }
+        return costBefore(endEpochDay + 1L) - costBefore(startEpochDay);
+    }
+
+    /**
+     * @param epochDay An epoch day, which may not have any transactions
+     *
+     * @return The number of transactions made before the day
+     */
+    private int countBefore(long epochDay) {
+        int total = 0;
+        for (int i = numOfDaysBefore(epochDay); i > 0; i -= i & -i) {
+            total += countTree[i];
+        }
+        return total;
+    }
+
+    /**
+     * @param epochDay An epoch day, which may not have any transactions
+     *
+     * @return The total cost of the transactions made before the day
+     */
+    private long costBefore(long epochDay) {
+        long total = 0;
+        for (int i = numOfDaysBefore(epochDay); i > 0; i -= i & -i) {
+            total += costTree[i];
+        }
+        return total;
+    }
+
+    /**
+     * Finds how many of the days with transactions come before a day in O(log d)
+     *
+     * @param epochDay An epoch day, which may not have any transactions
+     *
+     * @return The number of days with transactions before the day
+     */
+    private int numOfDaysBefore(long epochDay) {
+        int low = 0;
+        int high = numOfDays;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[middle] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds to the count and cost of a day in both Fenwick trees
+     *
+     * @param index The position of the day in the trees, starting at 1
+     * @param count The change in the number of transactions
+     * @param cost The change in the total cost
+     */
+    private void update(int index, int count, long cost) {
+        for (int i = index; i <= numOfDays; i += i & -i) {
+            countTree[i] += count;
+            costTree[i] += cost;
+        }
+    }
+
+    /**
+     * Adds a day without any transactions. A day after every other day is
+     * appended in O(log d); any other day rebuilds the trees in O(d)
+     *
+     * @param epochDay The day being added
+     * @param position The position the day is inserted at
+     *
+     * @return The position of the day
+     */
+    private int insertDay(int epochDay, int position) {
+        if (numOfDays == days.length) {
+            days = Arrays.copyOf(days, days.length * 2);
+            countTree = Arrays.copyOf(countTree, days.length + 1);
+            costTree = Arrays.copyOf(costTree, days.length + 1);
+        }
+        if (position == numOfDays) {
+            days[numOfDays++] = epochDay;
+            //The new node covers the days after i - (i & -i), which are the nodes below it
+            int i = numOfDays;
+            countTree[i] = 0;
+            costTree[i] = 0;
+            for (int j = i - 1; j > i - (i & -i); j -= j & -j) {
+                countTree[i] += countTree[j];
+                costTree[i] += costTree[j];
+            }
+            return position;
+        }
+        //Recover the count and cost of each day from the trees, then shift the later days
+        for (int i = numOfDays; i > 0; i--) {
+            for (int j = i - 1; j > i - (i & -i); j -= j & -j) {
+                countTree[i] -= countTree[j];
+                costTree[i] -= costTree[j];
+            }
+        }
+        System.arraycopy(days, position, days, position + 1, numOfDays - position);
+        System.arraycopy(countTree, position + 1, countTree, position + 2, numOfDays - position);
+        System.arraycopy(costTree, position + 1, costTree, position + 2, numOfDays - position);
+        days[position] = epochDay;
+        countTree[position + 1] = 0;
+        costTree[position + 1] = 0;
+        numOfDays++;
+        build();
+        return position;
+    }
+
+    /**
+     * Builds both trees in place in O(d) from the count and cost of each day
+     */
+    private void build() {
+        for (int i = 1; i <= numOfDays; i++) {
+            int parent = i + (i & -i);
+            if (parent <= numOfDays) {
+                countTree[parent] += countTree[i];
+                costTree[parent] += costTree[i];
+            }
+        }
+    }
+}
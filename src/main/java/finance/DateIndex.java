@@ -0,0 +1,216 @@
+package finance;
+
+//imports
+import java.util.Arrays;
+
+/**
+ * Creates an index of the transactions of an account ordered by date.
+ * <p>
+ * Each transaction is stored as a single long combining the epoch day of its
+ * date with the row id given to it by its {@link TransactionList}, so sorting
+ * the keys orders transactions by date, and transactions on the same date by
+ * the order they were added. The keys are kept in sorted chunks of at most
+ * CHUNK_CAPACITY keys, so adding or removing a key only shifts the keys of a
+ * single chunk, and every transaction in a date range is found in
+ * O(log n + k) for k matching transactions
+ *
+ * @author Dylan Munro
+ */
+public class DateIndex {
+
+    //Private Constants
+    private static final int CHUNK_CAPACITY = 256;
+    private static final int INITIAL_NUM_OF_CHUNKS = 4;
+
+    private long[][] chunks = new long[INITIAL_NUM_OF_CHUNKS][];
+    private int[] chunkSizes = new int[INITIAL_NUM_OF_CHUNKS];
+    private int numOfChunks;
+    private int size;
+
+    /**
+     * Adds a transaction to the index
+     *
+     * @param epochDay The epoch day of the transaction's date
+     * @param rowId The row id of the transaction
+     */
+    public void add(int epochDay, int rowId) {
+        long key = key(epochDay, rowId);
+        if (numOfChunks == 0) {
+            insertChunk(0, new long[CHUNK_CAPACITY]);
+        }
+        int chunk = findChunk(key);
+        if (chunkSizes[chunk] == CHUNK_CAPACITY && chunk == numOfChunks - 1
+                && key > chunks[chunk][CHUNK_CAPACITY - 1]) {
+            //Transactions are usually added in date order, so fill a new chunk instead of splitting
+            insertChunk(++chunk, new long[CHUNK_CAPACITY]);
+        } else if (chunkSizes[chunk] == CHUNK_CAPACITY) {
+            split(chunk);
+            if (key > chunks[chunk][chunkSizes[chunk] - 1]) {
+                chunk++;
+            }
+        }
+        long[] keys = chunks[chunk];
+        int position = -Arrays.binarySearch(keys, 0, chunkSizes[chunk], key) - 1;
+        System.arraycopy(keys, position, keys, position + 1, chunkSizes[chunk] - position);
+        keys[position] = key;
+        chunkSizes[chunk]++;
+        size++;
+    }
+
+    /**
+     * Removes a transaction from the index
+     *
+     * @param epochDay The epoch day of the transaction's date
+     * @param rowId The row id of the transaction
+     *
+     * @return true if the transaction was in the index, false otherwise
+     */
+    public boolean remove(int epochDay, int rowId) {
+        if (numOfChunks == 0) {
+            return false;
+        }
+        long key = key(epochDay, rowId);
+        int chunk = findChunk(key);
+        long[] keys = chunks[chunk];
+        int position = Arrays.binarySearch(keys, 0, chunkSizes[chunk], key);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(keys, position + 1, keys, position, chunkSizes[chunk] - position - 1);
+        chunkSizes[chunk]--;
+        size--;
+        if (chunkSizes[chunk] == 0) {
+            removeChunk(chunk);
+        }
+        return true;
+    }
+
+    /**
+     * Finds every transaction dated within a range, in O(log n + k)
+     *
+     * @param startEpochDay The epoch day of the first date in the range
+     * @param endEpochDay The epoch day of the last date in the range
+     *
+     * @return The row ids of the transactions in the range, ordered by date
+     */
+    public int[] getRowIdsBetween(int startEpochDay, int endEpochDay) {
+        if (numOfChunks == 0 || startEpochDay > endEpochDay) {
+            return new int[0];
+        }
+        long startKey = key(startEpochDay, 0);
+        long endKey = key(endEpochDay, Integer.MAX_VALUE);
+        int chunk = findChunk(startKey);
+        int position = Arrays.binarySearch(chunks[chunk], 0, chunkSizes[chunk], startKey);
+        position = position < 0 ? -position - 1 : position;
+        int[] rowIds = new int[16];
+        int numFound = 0;
+        for (; chunk < numOfChunks; chunk++, position = 0) {
+            long[] keys = chunks[chunk];
+            for (; position < chunkSizes[chunk]; position++) {
+                if (keys[position] > endKey) {
+                    return Arrays.copyOf(rowIds, numFound);
+                }
+                if (numFound == rowIds.length) {
+                    rowIds = Arrays.copyOf(rowIds, rowIds.length * 2);
+                }
+                rowIds[numFound++] = (int) keys[position];
+            }
+        }
+        return Arrays.copyOf(rowIds, numFound);
+    }
+
+    /**
+     * @return The number of transactions in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every transaction from the index
+     */
+    public void clear() {
+        chunks = new long[INITIAL_NUM_OF_CHUNKS][];
+        chunkSizes = new int[INITIAL_NUM_OF_CHUNKS];
+        numOfChunks = 0;
+        size = 0;
+    }
+
+    /**
+     * @param epochDay The epoch day of a transaction's date
+     * @param rowId The row id of the transaction, which is never negative
+     *
+     * @return The key ordering the transaction by date, then by row id
+     */
+    private static long key(int epochDay, int rowId) {
+        return ((long) epochDay << 32) | rowId;
+    }
+
+    /**
+     * Finds the chunk a key belongs in using a binary search over the last key
+     * of every chunk. Must only be called when the index has at least one chunk
+     *
+     * @param key The key being located
+     *
+     * @return The first chunk whose last key is at least the key, or the last
+     * chunk if the key is larger than every key in the index
+     */
+    private int findChunk(long key) {
+        int low = 0;
+        int high = numOfChunks - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (chunks[middle][chunkSizes[middle] - 1] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the upper half of a full chunk into a new chunk following it
+     *
+     * @param chunk The chunk being split
+     */
+    private void split(int chunk) {
+        long[] upper = new long[CHUNK_CAPACITY];
+        int half = CHUNK_CAPACITY / 2;
+        System.arraycopy(chunks[chunk], half, upper, 0, CHUNK_CAPACITY - half);
+        chunkSizes[chunk] = half;
+        insertChunk(chunk + 1, upper);
+        chunkSizes[chunk + 1] = CHUNK_CAPACITY - half;
+    }
+
+    /**
+     * Inserts an empty chunk, doubling the chunk arrays if they are full
+     *
+     * @param chunk The position of the new chunk
+     * @param keys The array holding the keys of the new chunk
+     */
+    private void insertChunk(int chunk, long[] keys) {
+        if (numOfChunks == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            chunkSizes = Arrays.copyOf(chunkSizes, chunkSizes.length * 2);
+        }
+        System.arraycopy(chunks, chunk, chunks, chunk + 1, numOfChunks - chunk);
+        System.arraycopy(chunkSizes, chunk, chunkSizes, chunk + 1, numOfChunks - chunk);
+        chunks[chunk] = keys;
+        chunkSizes[chunk] = 0;
+        numOfChunks++;
+    }
+
+    /**
+     * Removes an empty chunk
+     *
+     * @param chunk The position of the chunk being removed
+     */
+    private void removeChunk(int chunk) {
+        System.arraycopy(chunks, chunk + 1, chunks, chunk, numOfChunks - chunk - 1);
+        System.arraycopy(chunkSizes, chunk + 1, chunkSizes, chunk, numOfChunks - chunk - 1);
+        numOfChunks--;
+        chunks[numOfChunks] = null;
+        chunkSizes[numOfChunks] = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package finance;
+
+/**
+ * Creates a HyperLogLog sketch estimating the number of distinct values added
+ * to it.
+ * <p>
+ * Each value is hashed to 64 bits. The first PRECISION bits choose one of
+ * 2^PRECISION registers, and the register keeps the longest run of leading
+ * zeros seen in the remaining bits. The estimate has a standard error of
+ * 1.04 / sqrt(2^PRECISION), about 1.6%, using 4 KB regardless of the number of
+ * values. Values cannot be removed, so the estimate counts every value which
+ * was ever added
+ *
+ * @author Dylan Munro
+ */
+public class HyperLogLog {
+
+    //Private Constants
+    private static final int PRECISION = 12;
+    private static final int NUM_OF_REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / NUM_OF_REGISTERS);
+
+    //Public Constants
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(NUM_OF_REGISTERS);
+
+    private final byte[] registers = new byte[NUM_OF_REGISTERS];
+
+    /**
+     * Adds a value to the sketch in O(1)
+     *
+     * @param value The value, such as the symbol id of an item name
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int register = (int) (hash >>> (Long.SIZE - PRECISION));
+        //Setting the lowest bit bounds the run of zeros when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | 1) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added in O(2^PRECISION)
+     *
+     * @return The estimated number of distinct values
+     */
+    public long estimate() {
+        double sum = 0;
+        int numOfEmptyRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                numOfEmptyRegisters++;
+            }
+        }
+        double estimate = ALPHA * NUM_OF_REGISTERS * NUM_OF_REGISTERS / sum;
+        if (estimate <= 2.5 * NUM_OF_REGISTERS && numOfEmptyRegisters > 0) {
+            //Linear counting is more accurate while many registers are empty
+            estimate = NUM_OF_REGISTERS * Math.log((double) NUM_OF_REGISTERS / numOfEmptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Spreads the bits of a value over a 64 bit hash, using the finalizer of
+     * the SplitMix64 generator
+     *
+     * @param value The value being hashed
+     *
+     * @return The hash of the value
+     */
+    static long mix(long value) {
+        long hash = value + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -2,14 +2,21 @@ package finance;
 
 //imports
 //simple json parser imports
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 //io imports
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 import java.time.LocalDate;
@@ -22,8 +29,16 @@ import java.util.InputMismatchException;
  */
 public class IO {
 
+    //Private Constants
+    private static final int NO_SERVER = -1; //Port given when commands are read instead of served
+    private static final String STANDARD_INPUT = "-"; //Script path naming standard input
+    private static final int SCRIPT_BUFFER_SIZE = 1 << 16;
+
     private final AccountManager manager = new AccountManager();
     private final Parser parser = new Parser();
+    //Output of requests, flushed after each request so it is never interleaved with prompts
+    private final Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+    private boolean isLazy; //Transactions are only loaded once their account is used
 
     /**
      * Obtains a double from a prompt with exception checking
@@ -50,6 +65,25 @@ public class IO {
         return response;
     }
 
+    /**
+     * Obtains an amount of money from a prompt with exception checking
+     *
+     * @param input The Scanner reading the user's input
+     * @param prompt The question to prompt the user with
+     *
+     * @return A valid amount in minor units
+     */
+    public long getMoney(Scanner input, String prompt) {
+        System.out.println(prompt);
+        while (true) {
+            try {
+                return Money.parse(input.nextLine());
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a number containing only decimal digits");
+            }
+        }
+    }
+
     /**
      * Obtains an int from a prompt with exception checking
      *
@@ -79,20 +113,22 @@ public class IO {
      *
      * @param input The Scanner reading the user's input
      *
-     * @return BufferedReader with file containing account details
+     * @return Path of the file containing account details
      *
      * @throws IOException
      */
-    private BufferedReader getAccountFilePath(Scanner input) throws IOException {
-        BufferedReader fileStream = null;
+    private Path getAccountFilePath(Scanner input) throws IOException {
         System.out.println("Enter the path to the file with the account details");
         String userResponse = input.nextLine();
         try {
-            fileStream = new BufferedReader(new FileReader(userResponse));
-        } catch (IOException e) {
-            throw new IOException("The file \"" + userResponse + "\" could not be found");
+            Path filePath = Paths.get(userResponse);
+            if (Files.isRegularFile(filePath)) {
+                return filePath;
+            }
+        } catch (InvalidPathException e) {
+            //Reported below in the same way as a missing file
         }
-        return fileStream;
+        throw new IOException("The file \"" + userResponse + "\" could not be found");
     }
 
     /**
@@ -156,7 +192,7 @@ public class IO {
                 String itemName = input.nextLine();
                 System.out.println("Enter the category of the item");
                 String itemCategory = input.nextLine();
-                double itemFee = getDouble(input, "Enter the fee associated with the item");
+                long itemFee = getMoney(input, "Enter the fee associated with the item");
                 int quantity = getInt(input, "Enter the quantity of the item purchased");
                 LocalDate purchaseDate = getDate(input,
                         "Enter the date of the transaction (yyyy-mm-dd)."
@@ -173,12 +209,71 @@ public class IO {
                         "Enter the transaction number you wish to delete");
                 request = new TransactionRequest(action, transactionNumber);
                 break;
+            case "display transaction category":
+                if (!manager.hasActiveAccount()) {
+                    throw new AccountException("No active account selected");
+                }
+                System.out.println("Enter the category of the transactions");
+                request = parser.generateTransactionRequest(action, input.nextLine());
+                break;
+            case "display transaction range":
+            case "display transaction total":
+                if (!manager.hasActiveAccount()) {
+                    throw new AccountException("No active account selected");
+                }
+                LocalDate startDate = getDate(input, "Enter the first date of the range (yyyy-mm-dd)");
+                LocalDate endDate = getDate(input, "Enter the last date of the range (yyyy-mm-dd)");
+                request = parser.generateTransactionRequest(action, startDate, endDate);
+                break;
+            case "display transaction page":
+                if (!manager.hasActiveAccount()) {
+                    throw new AccountException("No active account selected");
+                }
+                int pageSize = getInt(input, "Enter the number of transactions per page");
+                int cursor = getInt(input, "Enter the cursor of the page, or "
+                        + Account.FIRST_PAGE + " for the first page");
+                request = parser.generateTransactionRequest(action, cursor, pageSize);
+                break;
+            case "display transaction largest":
+            case "display transaction frequent":
+                int count = getInt(input, "Enter the number of results to display");
+                boolean isAllAccounts = getYesOrNoResponse(
+                        "Include every account? (Yes/No)", input).equalsIgnoreCase("yes");
+                if (!isAllAccounts && !manager.hasActiveAccount()) {
+                    throw new AccountException("No active account selected");
+                }
+                request = parser.generateTransactionRequest(action, count, isAllAccounts);
+                break;
+            case "query transaction":
+                if (!manager.hasActiveAccount()) {
+                    throw new AccountException("No active account selected");
+                }
+                System.out.println("Enter the query, for example:"
+                        + "\ncategory = \"Food\" and fee > 20 and date >= 2021-01-01 order by fee desc limit 50"
+                        + "\nThe fields are name, category, fee, quantity, date, and cost");
+                request = parser.generateQueryRequest(action, input.nextLine());
+                break;
             default:
                 throw new InvalidRequestException("The specified action could not be found");
         }
         return request;
     }
 
+    /**
+     * Obtains all necessary user input to create a SaveRequest object and
+     * creates it
+     *
+     * @param action The action word describing the functionality of the Request
+     * @param input The Scanner which user input is being read from
+     *
+     * @return The newly created SaveRequest object
+     */
+    private SaveRequest getSaveRequest(String action, Scanner input)
+            throws InvalidRequestException {
+        System.out.println("Enter the path of the file to save the accounts to");
+        return parser.generateSaveRequest(action, input.nextLine());
+    }
+
     /**
      * Generates a date given a prompt and checks if the date is legitimate
      *
@@ -274,22 +369,6 @@ public class IO {
         return true;
     }
 
-    /**
-     * Opens the JSON file containing details about the namesToAccounts
-     *
-     * @param filePath The path to the JSON file
-     */
-    private JSONObject loadAccountsJSON(BufferedReader inputStream) {
-        JSONObject accountsJSON = null;
-        JSONParser jParser = new JSONParser();
-        try {
-            accountsJSON = (JSONObject) jParser.parse(inputStream);
-        } catch (ParseException | IOException e) {
-            System.out.println(e.getMessage());
-        }
-        return accountsJSON;
-    }
-
     /**
      * Loads all files needed to execute the program
      *
@@ -297,17 +376,18 @@ public class IO {
      * @throws CorruptJSONObjectException, IOException
      */
     private void loadFiles(Scanner input) {
-        JSONObject accountsJson;
-        BufferedReader activeStream = null;
         boolean loadedValidFile = false;
         String userResponse = getYesOrNoResponse(
                 "Would you like to load a file with account details? (Yes/No)", input);
         if (userResponse.compareToIgnoreCase("Yes") == 0) {
             while (!loadedValidFile) {
                 try {
-                    activeStream = getAccountFilePath(input);
-                    accountsJson = loadAccountsJSON(activeStream);
-                    manager.generateAccounts(accountsJson);
+                    Path filePath = getAccountFilePath(input);
+                    if (SnapshotReader.isSnapshot(filePath)) {
+                        manager.loadSnapshot(filePath, isLazy);
+                    } else {
+                        manager.generateAccounts(filePath, isLazy);
+                    }
                     loadedValidFile = true;
                 } catch (Exception e) {
                     System.out.println(e.getMessage());
@@ -316,29 +396,153 @@ public class IO {
                     if (userResponse.compareToIgnoreCase("no") == 0) {
                         return;
                     }
-                } finally {
-                    try {
-                        if (activeStream != null) {
-                            activeStream.close();
-                        }
-                    } catch (IOException e) {
-                        System.out.println(e.getMessage());
-                    }
                 }
             }
         }
     }
 
+    /**
+     * Loads the accounts stored in a file without asking for input
+     *
+     * @param file The path to the JSON or snapshot file
+     *
+     * @return true if the accounts were loaded, false otherwise
+     */
+    private boolean loadFile(String file) {
+        try {
+            Path filePath = Paths.get(file);
+            if (SnapshotReader.isSnapshot(filePath)) {
+                manager.loadSnapshot(filePath, isLazy);
+            } else {
+                manager.generateAccounts(filePath, isLazy);
+            }
+            return true;
+        } catch (Exception e) {
+            System.out.println("The file \"" + file + "\" could not be loaded: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the accounts stored in a data directory and journals every change
+     * made to them
+     *
+     * @param directory The path to the data directory
+     *
+     * @return true if the data directory was opened, false otherwise
+     */
+    private boolean openDataDirectory(String directory) {
+        try {
+            manager.openJournal(Paths.get(directory));
+            return true;
+        } catch (Exception e) {
+            System.out.println("The data directory \"" + directory + "\" could not be opened: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Serves the accounts as a JSON API over HTTP until the program is stopped,
+     * when every journaled change is written to disk
+     *
+     * @param port The port listened on
+     * @param numOfThreads The number of threads running requests
+     */
+    private void serve(int port, int numOfThreads) {
+        try {
+            ApiServer server = new ApiServer(manager, port, numOfThreads);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.stop();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                closeDataDirectory();
+            }));
+            System.out.println("Serving the accounts at http://localhost:" + server.getPort()
+                    + "/accounts");
+        } catch (IOException e) {
+            System.out.println("The server could not be started: " + e.getMessage());
+            closeDataDirectory();
+        }
+    }
+
+    /**
+     * Writes every journaled change to disk before the program ends
+     */
+    private void closeDataDirectory() {
+        try {
+            manager.closeJournal();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     /**
      * Initial method called
+     * <p>
+     * Run with the arguments "--data-dir (path)" to load accounts from a data
+     * directory and journal every change to them, instead of loading a file.
+     * Run with the argument "--lazy" to only load the transactions of an account
+     * once the account is used. Run with the arguments "--server [port]" to serve
+     * the accounts as a JSON API over HTTP instead of reading commands, using
+     * "--threads (count)" threads to run requests. Run with the arguments
+     * "--script [path]" to execute the one line commands of a script, read from
+     * standard input if no path or "-" is given, without any prompts. Run with
+     * the arguments "--load (path)" to load a file without being asked for one
      *
      * @param args the command line arguments
      */
     public static void main(String[] args) {
         IO ioHandler = new IO();
         Scanner input = new Scanner(System.in);
-        ioHandler.loadFiles(input);
+        String dataDirectory = null;
+        String file = null;
+        String script = null;
+        int port = NO_SERVER;
+        int numOfThreads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--lazy")) {
+                ioHandler.isLazy = true;
+            } else if (args[i].equals("--data-dir") && i + 1 < args.length) {
+                dataDirectory = args[++i];
+            } else if (args[i].equals("--server")) {
+                port = i + 1 < args.length && ioHandler.isInteger(args[i + 1])
+                        ? Integer.parseInt(args[++i]) : ApiServer.DEFAULT_PORT;
+            } else if (args[i].equals("--threads") && i + 1 < args.length
+                    && ioHandler.isInteger(args[i + 1])) {
+                numOfThreads = Math.max(1, Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--script")) {
+                script = i + 1 < args.length && !args[i + 1].startsWith("--")
+                        ? args[++i] : STANDARD_INPUT;
+            } else if (args[i].equals("--load") && i + 1 < args.length) {
+                file = args[++i];
+            }
+        }
+        if (dataDirectory != null) {
+            if (!ioHandler.openDataDirectory(dataDirectory)) {
+                return;
+            }
+        } else if (file != null) {
+            if (!ioHandler.loadFile(file)) {
+                return;
+            }
+        } else if (port == NO_SERVER && script == null) {
+            ioHandler.loadFiles(input);
+        }
+        if (port != NO_SERVER) {
+            ioHandler.serve(port, numOfThreads);
+            return;
+        }
+        if (script != null) {
+            ioHandler.runScript(script);
+            ioHandler.closeDataDirectory();
+            return;
+        }
         ioHandler.run(input);
+        ioHandler.closeDataDirectory();
     }
 
     /**
@@ -351,7 +555,97 @@ public class IO {
     public void printTransactions() throws InvalidRequestException,
             AccountException, TransactionNotFoundException {
         System.out.println("Here are all transactions for the current account:");
-        System.out.println(manager.executeRequest(parser.generateRequest("display transaction")));
+        executeRequest(parser.generateRequest("display transaction"));
+    }
+
+    /**
+     * Executes a request, streaming its output to standard output
+     *
+     * @param request The request being executed
+     *
+     * @throws InvalidRequestException
+     * @throws AccountException
+     * @throws TransactionNotFoundException
+     */
+    private void executeRequest(Request request) throws InvalidRequestException,
+            AccountException, TransactionNotFoundException {
+        try {
+            manager.executeRequest(request, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Executes a script read from a file or standard input, then writes any
+     * output not yet written
+     *
+     * @param script The path to the script, or "-" for standard input
+     */
+    private void runScript(String script) {
+        try (BufferedReader reader = script.equals(STANDARD_INPUT)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                        SCRIPT_BUFFER_SIZE)
+                : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8)) {
+            runScript(reader, out);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("The script \"" + script + "\" could not be read: " + e.getMessage());
+        } finally {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executes the commands of a script, one per line, until the script ends or
+     * a "quit" command is read. Commands are described by
+     * {@link Parser#parseCommand(String)}; blank lines and lines starting with
+     * "#" are skipped.
+     * <p>
+     * No prompts or menus are written, and the output is only flushed when its
+     * buffer fills, so the speed of a script is limited by the requests
+     * themselves. A command which fails writes its line number and the reason
+     * to the output, and the script continues
+     *
+     * @param input The reader of the script
+     * @param output Where the output of each command is written
+     *
+     * @return The number of commands which failed
+     *
+     * @throws IOException if the script cannot be read or the output cannot be written
+     */
+    int runScript(BufferedReader input, Writer output) throws IOException {
+        int numOfFailures = 0;
+        int lineNumber = 0;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            String command = line.trim();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+            try {
+                Request request = parser.parseCommand(command);
+                manager.executeRequest(request, output);
+                if (request.getAction().equals("quit")) {
+                    break;
+                }
+            } catch (InvalidRequestException | AccountException | TransactionNotFoundException e) {
+                output.append("Line ").append(String.valueOf(lineNumber)).append(": ")
+                        .append(e.getMessage()).append('\n');
+                numOfFailures++;
+            } catch (RuntimeException e) {
+                output.append("Line ").append(String.valueOf(lineNumber))
+                        .append(": The command could not be executed: ").append(e.toString())
+                        .append('\n');
+                numOfFailures++;
+            }
+        }
+        return numOfFailures;
     }
 
     /**
@@ -361,7 +655,6 @@ public class IO {
      */
     private void run(Scanner input) {
         String userChoice = "";
-        String output;
         Request currentRequest;
         System.out.println("To view a list of all options, type \"help\"");
         while (userChoice.compareToIgnoreCase("quit") != 0) {
@@ -376,12 +669,14 @@ public class IO {
                     case Request.TRANSACTION:
                         currentRequest = getTransactionRequest(userChoice, input);
                         break;
+                    case Request.FILE:
+                        currentRequest = getSaveRequest(userChoice.toLowerCase(), input);
+                        break;
                     default:
                         currentRequest = parser.generateRequest(userChoice);
                         break;
                 }
-                output = manager.executeRequest(currentRequest);
-                System.out.println(output);
+                executeRequest(currentRequest);
             } catch (InvalidRequestException | AccountException | TransactionNotFoundException e) {
                 System.out.println(e.getMessage());
             }
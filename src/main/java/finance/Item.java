@@ -10,7 +10,7 @@ import org.json.simple.JSONObject;
  */
 public class Item {
 
-    private final double fee;
+    private final long fee; //In minor units, see Money
     private final String name;
     private final String category;
 
@@ -38,21 +38,21 @@ public class Item {
      * Creates an item given a fee and name but no category. 
      * The category is set to "Other" by default
      * 
-     * @param fee The change in Account value that a single Item causes
+     * @param fee The change in Account value that a single Item causes, in minor units
      * @param name The name of the Item
      */
-    public Item(double fee, String name) {
+    public Item(long fee, String name) {
         this(fee, name, "Other");
     }
 
     /**
      * Creates an item given a fee, name, and category
      *
-     * @param fee The change in Account value that a single Item causes
+     * @param fee The change in Account value that a single Item causes, in minor units
      * @param name The name of the Item
      * @param category Broad classification which links multiple items together
      */
-    public Item(double fee, String name, String category) {
+    public Item(long fee, String name, String category) {
         this.category = category;
         this.fee = fee;
         this.name = name;
@@ -66,18 +66,36 @@ public class Item {
      */
     public Item(JSONObject obj) throws CorruptJSONObjectException {
         if (isValidJSONItem(obj)) {
-            this.name = obj.get("name").toString();
-            this.fee = Double.parseDouble(obj.get("fee").toString());
+            SymbolTable symbols = SymbolTable.getGlobal();
+            this.name = symbols.intern(obj.get("name").toString());
+            this.fee = parseFee(obj.get("fee"));
             if (obj.get("category") == null) {
                 this.category = "Other";
             } else {
-                this.category = obj.get("category").toString();
+                this.category = symbols.intern(obj.get("category").toString());
             }
         } else {
             throw new CorruptJSONObjectException("The JSON file contains invalid item declarations");
         }
     }
 
+    /**
+     * Parses the fee of an item from its JSON representation
+     *
+     * @param value The JSON value stored under the "fee" key
+     *
+     * @return The fee of the item in minor units
+     *
+     * @throws CorruptJSONObjectException
+     */
+    static long parseFee(Object value) throws CorruptJSONObjectException {
+        try {
+            return Money.parse(value.toString());
+        } catch (NumberFormatException e) {
+            throw new CorruptJSONObjectException("The fee " + value + " is not a number");
+        }
+    }
+
     /**
      * The category describes a broad classification which links multiple items
      *
@@ -91,9 +109,9 @@ public class Item {
      * The fee describes the change that a single item brings to the value of an
      * account
      *
-     * @return The fee of the item
+     * @return The fee of the item in minor units
      */
-    public double getFee() {
+    public long getFee() {
         return fee;
     }
 
@@ -109,7 +127,7 @@ public class Item {
      */
     @Override
     public String toString() {
-        return "Item name: " + name + "\nCost: " + fee + "\nCategory: " + category;
+        return "Item name: " + name + "\nCost: " + Money.toString(fee) + "\nCategory: " + category;
     }
 
 }
@@ -0,0 +1,81 @@
+package finance;
+
+//imports
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts amounts of money to and from a fixed-point representation.
+ * <p>
+ * An amount is stored as a primitive long counting minor units, such as cents,
+ * so that amounts add and multiply exactly and can be totalled in a primitive
+ * loop without boxing. This class only holds the conversions; amounts
+ * themselves are never wrapped in objects
+ *
+ * @author Dylan Munro
+ */
+public final class Money {
+
+    //Public Constants
+    public static final int DECIMAL_PLACES = 2;
+    public static final long MINOR_UNITS_PER_UNIT = 100;
+
+    //Private Constants
+    private static final int MAX_INTEGER_DIGITS = 17; //Digits of the largest amount a long can hold
+    private static final int MAX_SCALE = 64; //Decimal places of the most precise amount parsed
+
+    /**
+     * Amounts are only represented as longs, so no Money objects are created
+     */
+    private Money() {
+    }
+
+    /**
+     * Parses an amount written in major units, such as "12.34" or "-5"
+     *
+     * @param amount The amount in major units
+     *
+     * @return The amount in minor units, rounded half up to the nearest minor unit
+     *
+     * @throws NumberFormatException if the amount is not a number, or does not
+     * fit in a long once converted to minor units
+     */
+    public static long parse(String amount) {
+        BigDecimal value = new BigDecimal(amount.trim());
+        //Rescaling takes time in proportion to the exponent, so amounts far too
+        //large or too precise are rejected before they are rescaled
+        if (value.scale() > MAX_SCALE || value.scale() < -MAX_INTEGER_DIGITS
+                || value.precision() - value.scale() > MAX_INTEGER_DIGITS) {
+            throw new NumberFormatException("The amount " + amount + " is too large or too precise");
+        }
+        try {
+            return value.setScale(DECIMAL_PLACES, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("The amount " + amount + " is too large");
+        }
+    }
+
+    /**
+     * Formats an amount in major units with exactly DECIMAL_PLACES decimal places
+     *
+     * @param amount The amount in minor units
+     *
+     * @return The amount in major units, such as "12.34" or "-0.05"
+     */
+    public static String toString(long amount) {
+        return BigDecimal.valueOf(amount, DECIMAL_PLACES).toPlainString();
+    }
+
+    /**
+     * Converts an amount to major units held by a double, for display and
+     * statistics where exactness is not required
+     *
+     * @param amount The amount in minor units
+     *
+     * @return The closest double to the amount in major units
+     */
+    public static double toDouble(long amount) {
+        return (double) amount / MINOR_UNITS_PER_UNIT;
+    }
+}
@@ -1,8 +1,12 @@
 package finance;
 
 //imports
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Creates a parser object to generate requests from user commands
@@ -11,6 +15,18 @@ import java.util.HashMap;
  */
 public class Parser {
 
+    //Private Constants
+    private static final String ARGUMENT_SEPARATOR = "\\|"; //Separates the arguments of a command
+    private static final String[] ACTIONS; //Every action, longest first
+    private static final int DATE_LENGTH = "yyyy-mm-dd".length();
+
+    static {
+        List<String> actions = new ArrayList<>(Request.getONE_PARAM_ACTION_DESCRIPTIONS().keySet());
+        actions.addAll(Request.getTWO_PARAM_ACTION_DESCRIPTIONS().keySet());
+        actions.sort(Comparator.comparingInt(String::length).reversed());
+        ACTIONS = actions.toArray(new String[0]);
+    }
+
     /**
      * Generates a Request which describes an action for the AccountManager to take
      *
@@ -47,7 +63,7 @@ public class Parser {
      * transaction
      * @param itemName The name of the item involved in the transaction
      * @param itemFee The fee associated with the item involved in the
-     * transaction
+     * transaction, in minor units
      * @param itemCategory The broad category which the item involved in the
      * transaction belongs to
      * @param date The date of the transaction
@@ -57,7 +73,7 @@ public class Parser {
      *
      * @return New TransactionRequest object
      */
-    public TransactionRequest generateTransactionRequest(String action, String itemName, double itemFee,
+    public TransactionRequest generateTransactionRequest(String action, String itemName, long itemFee,
             String itemCategory, LocalDate date, int quantity) throws InvalidRequestException {
         return new TransactionRequest(action, itemName,
                 itemFee, itemCategory, date, quantity);
@@ -79,9 +95,108 @@ public class Parser {
         return new TransactionRequest(action, transactionNumber);
     }
 
+    /**
+     * Generates a TransactionRequest which acts on every transaction in a category
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param itemCategory The broad category the transactions belong to
+     *
+     * @throws InvalidRequestException
+     *
+     * @return New TransactionRequest object
+     */
+    public TransactionRequest generateTransactionRequest(String action, String itemCategory)
+            throws InvalidRequestException {
+        return new TransactionRequest(action, itemCategory);
+    }
+
+    /**
+     * Generates a TransactionRequest which acts on every transaction between two dates
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param startDate The first date in the range
+     * @param endDate The last date in the range
+     *
+     * @throws InvalidRequestException
+     *
+     * @return New TransactionRequest object
+     */
+    public TransactionRequest generateTransactionRequest(String action, LocalDate startDate,
+            LocalDate endDate) throws InvalidRequestException {
+        return new TransactionRequest(action, startDate, endDate);
+    }
+
+    /**
+     * Generates a TransactionRequest which acts on a page of transactions
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param cursor {@link Account#FIRST_PAGE}, or the cursor returned for the previous page
+     * @param pageSize The largest number of transactions in the page
+     *
+     * @throws InvalidRequestException
+     *
+     * @return New TransactionRequest object
+     */
+    public TransactionRequest generateTransactionRequest(String action, int cursor, int pageSize)
+            throws InvalidRequestException {
+        return new TransactionRequest(action, cursor, pageSize);
+    }
+
+    /**
+     * Generates a TransactionRequest which ranks transactions or items
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param count The largest number of transactions or items listed
+     * @param isAllAccounts true to rank every account, false to rank only the
+     * current active account
+     *
+     * @throws InvalidRequestException
+     *
+     * @return New TransactionRequest object
+     */
+    public TransactionRequest generateTransactionRequest(String action, int count,
+            boolean isAllAccounts) throws InvalidRequestException {
+        return new TransactionRequest(action, count, isAllAccounts);
+    }
+
+    /**
+     * Generates a TransactionRequest which acts on every transaction satisfying a query
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param queryText The text of the query, such as
+     * {@code category = "Food" and fee > 20 order by date desc limit 10}
+     *
+     * @throws InvalidRequestException if the query is not valid
+     *
+     * @return New TransactionRequest object holding the compiled query
+     */
+    public TransactionRequest generateQueryRequest(String action, String queryText)
+            throws InvalidRequestException {
+        return new TransactionRequest(action, TransactionQuery.compile(queryText));
+    }
+
+    /**
+     * Generates a SaveRequest which describes where accounts should be saved
+     *
+     * @param action The action word describing the Request
+     * @param filePath The path of the file the accounts are written to
+     *
+     * @return The created SaveRequest object
+     *
+     * @throws InvalidRequestException
+     */
+    public SaveRequest generateSaveRequest(String action, String filePath) throws InvalidRequestException {
+        return new SaveRequest(action, filePath);
+    }
+
     /**
      * Parses an action word and determines if it relates to an account,
-     * transaction, or neither
+     * transaction, file, or neither
      *
      * @param action The action word to be parsed
      * 
@@ -89,18 +204,200 @@ public class Parser {
      * 
      * @return Request.ACCOUNT if action relates to an account,
      * Request.TRANSACTION if action relates to a transaction,
+     * Request.FILE if action relates to a file,
      * Request.NONE if action relates to neither
      */
     public int getActionObject(String action) throws InvalidRequestException {
         String[] words = action.split(" ");
         HashMap<String, String> oneParamActions = Request.getONE_PARAM_ACTION_DESCRIPTIONS();
-        if (words.length == 1 || oneParamActions.containsKey(action)) {
+        if (action.compareToIgnoreCase("save") == 0) {
+            return Request.FILE;
+        } else if (words.length == 1 || oneParamActions.containsKey(action)) {
             return Request.NONE;
         } else if (words.length == 2 && words[1].compareToIgnoreCase("account") == 0) {
             return Request.ACCOUNT;
-        } else if (words.length == 2 && words[1].compareToIgnoreCase("transaction") == 0) {
+        } else if (words.length >= 2 && words[1].compareToIgnoreCase("transaction") == 0) {
             return Request.TRANSACTION;
         }
         throw new InvalidRequestException("Request not recongized");
     }
+
+    /**
+     * Generates a request from a command written on one line, as read from a
+     * script. The command is an action followed by its arguments, with
+     * arguments separated by "|". Arguments follow the order they are asked
+     * for interactively, and arguments shown in brackets may be left out:
+     * <ul>
+     * <li>{@code add account Savings}</li>
+     * <li>{@code add transaction Coffee | Food | 3.50 | 1 | 2021-01-31}</li>
+     * <li>{@code delete transaction 3}</li>
+     * <li>{@code display transaction range 2021-01-01 | today}</li>
+     * <li>{@code display transaction page 100 [| cursor]}</li>
+     * <li>{@code display transaction largest 10 [| yes]}, where yes includes
+     * every account</li>
+     * <li>{@code query transaction category = "Food" and fee > 20}</li>
+     * <li>{@code save accounts.json}</li>
+     * </ul>
+     * Account names, categories, queries, and file paths are the rest of the
+     * line, so they may contain "|"
+     *
+     * @param command The command, such as {@code delete transaction 3}
+     *
+     * @throws InvalidRequestException if the action is not recognized or its
+     * arguments are not valid
+     *
+     * @return The created Request object
+     */
+    public Request parseCommand(String command) throws InvalidRequestException {
+        String action = findAction(command.trim());
+        String arguments = command.trim().substring(action.length()).trim();
+        String[] fields;
+        try {
+            switch (action) {
+                case "add account":
+                case "change account":
+                case "delete account":
+                    return generateAccountRequest(action, requireArguments(action, arguments));
+                case "add transaction":
+                    fields = splitArguments(action, arguments, 5, 5);
+                    return generateTransactionRequest(action, fields[0], Money.parse(fields[2]),
+                            fields[1], parseDate(fields[4]), Integer.parseInt(fields[3]));
+                case "delete transaction":
+                    return generateTransactionRequest(action,
+                            Integer.parseInt(requireArguments(action, arguments)));
+                case "display transaction category":
+                    return generateTransactionRequest(action, requireArguments(action, arguments));
+                case "display transaction range":
+                case "display transaction total":
+                    fields = splitArguments(action, arguments, 2, 2);
+                    return generateTransactionRequest(action, parseDate(fields[0]),
+                            parseDate(fields[1]));
+                case "display transaction page":
+                    fields = splitArguments(action, arguments, 1, 2);
+                    return generateTransactionRequest(action,
+                            fields.length > 1 ? Integer.parseInt(fields[1]) : Account.FIRST_PAGE,
+                            Integer.parseInt(fields[0]));
+                case "display transaction largest":
+                case "display transaction frequent":
+                    fields = splitArguments(action, arguments, 1, 2);
+                    if (fields.length > 1 && !fields[1].equalsIgnoreCase("yes")
+                            && !fields[1].equalsIgnoreCase("no")) {
+                        throw new InvalidRequestException("\"" + action
+                                + "\" takes Yes or No after the count");
+                    }
+                    return generateTransactionRequest(action, Integer.parseInt(fields[0]),
+                            fields.length > 1 && fields[1].equalsIgnoreCase("yes"));
+                case "query transaction":
+                    return generateQueryRequest(action, requireArguments(action, arguments));
+                case "save":
+                    return generateSaveRequest(action, requireArguments(action, arguments));
+                default:
+                    if (!arguments.isEmpty()) {
+                        throw new InvalidRequestException("\"" + action + "\" takes no arguments");
+                    }
+                    return generateRequest(action);
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new InvalidRequestException("The arguments of \"" + action
+                    + "\" are not valid: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the longest action a command starts with, ignoring case
+     *
+     * @param command The command
+     *
+     * @throws InvalidRequestException if the command starts with no action
+     *
+     * @return The action
+     */
+    private String findAction(String command) throws InvalidRequestException {
+        for (String current : ACTIONS) {
+            if (command.regionMatches(true, 0, current, 0, current.length())
+                    && (command.length() == current.length()
+                    || command.charAt(current.length()) == ' ')) {
+                return current;
+            }
+        }
+        throw new InvalidRequestException("The command \"" + command + "\" is not recognized");
+    }
+
+    /**
+     * @param action The action of a command
+     * @param arguments The arguments of the command
+     *
+     * @throws InvalidRequestException if no arguments were given
+     *
+     * @return The arguments
+     */
+    private String requireArguments(String action, String arguments) throws InvalidRequestException {
+        if (arguments.isEmpty()) {
+            throw new InvalidRequestException("\"" + action + "\" requires an argument");
+        }
+        return arguments;
+    }
+
+    /**
+     * Splits the arguments of a command at each "|"
+     *
+     * @param action The action of the command
+     * @param arguments The arguments of the command
+     * @param min The fewest arguments the action takes
+     * @param max The most arguments the action takes
+     *
+     * @throws InvalidRequestException if the number of arguments is not allowed
+     *
+     * @return The arguments, without surrounding whitespace
+     */
+    private String[] splitArguments(String action, String arguments, int min, int max)
+            throws InvalidRequestException {
+        String[] fields = arguments.isEmpty() ? new String[0] : arguments.split(ARGUMENT_SEPARATOR, -1);
+        if (fields.length < min || fields.length > max) {
+            throw new InvalidRequestException("\"" + action + "\" takes "
+                    + (min == max ? String.valueOf(min) : min + " to " + max)
+                    + " arguments separated by \"|\", but " + fields.length + " were given");
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].trim();
+        }
+        return fields;
+    }
+
+    /**
+     * @param date A date in the format (yyyy-mm-dd), or "today"
+     *
+     * @return The date
+     *
+     * @throws DateTimeException if the date is not valid
+     */
+    private LocalDate parseDate(String date) {
+        if (date.equalsIgnoreCase("today")) {
+            return LocalDate.now();
+        }
+        //Dates are read directly when they have the usual shape, which is much
+        //faster than a formatter
+        if (date.length() == DATE_LENGTH && date.charAt(4) == '-' && date.charAt(7) == '-'
+                && isDigits(date, 0, 4) && isDigits(date, 5, 7) && isDigits(date, 8, 10)) {
+            return LocalDate.of(Integer.parseInt(date, 0, 4, 10),
+                    Integer.parseInt(date, 5, 7, 10), Integer.parseInt(date, 8, 10, 10));
+        }
+        return LocalDate.parse(date);
+    }
+
+    /**
+     * @param str A string
+     * @param start The first index checked
+     * @param end The index after the last index checked
+     *
+     * @return true if every character in the range is a decimal digit
+     */
+    private static boolean isDigits(String str, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (str.charAt(i) < '0' || str.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
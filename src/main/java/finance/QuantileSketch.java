@@ -0,0 +1,177 @@
+package finance;
+
+/**
+ * Creates a quantile sketch of amounts in minor units, in the manner of
+ * DDSketch.
+ * <p>
+ * Amounts are counted in logarithmic buckets, where bucket i holds the
+ * magnitudes between GAMMA^(i-1) and GAMMA^i, with
+ * GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY). Any quantile is
+ * then estimated within RELATIVE_ACCURACY of an amount at that rank, using a
+ * bucket for each power of GAMMA spanned by the amounts rather than memory for
+ * each amount. Amounts are added and removed in O(1)
+ *
+ * @author Dylan Munro
+ */
+public class QuantileSketch {
+
+    //Public Constants
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    //Private Constants
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int INITIAL_NUM_OF_BUCKETS = 64;
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets(); //Counted by magnitude
+    private long zeroCount;
+    private long count;
+
+    /**
+     * Counts the amounts whose magnitudes fall in a range of consecutive buckets
+     */
+    private static final class Buckets {
+
+        private int firstIndex;
+        private long[] counts = new long[0];
+
+        /**
+         * Adds to the count of a bucket, widening the range of buckets if needed
+         *
+         * @param index The index of the bucket
+         * @param delta The change in the count
+         */
+        private void add(int index, long delta) {
+            if (counts.length == 0) {
+                firstIndex = index - INITIAL_NUM_OF_BUCKETS / 2;
+                counts = new long[INITIAL_NUM_OF_BUCKETS];
+            }
+            if (index < firstIndex || index >= firstIndex + counts.length) {
+                int newFirstIndex = Math.min(firstIndex, index);
+                int newLength = counts.length;
+                while (Math.max(index, firstIndex + counts.length - 1) - newFirstIndex >= newLength) {
+                    newLength *= 2;
+                }
+                long[] widened = new long[newLength];
+                System.arraycopy(counts, 0, widened, firstIndex - newFirstIndex, counts.length);
+                counts = widened;
+                firstIndex = newFirstIndex;
+            }
+            counts[index - firstIndex] += delta;
+        }
+
+        /**
+         * @param index The index of a bucket
+         *
+         * @return The number of amounts in the bucket
+         */
+        private long get(int index) {
+            int position = index - firstIndex;
+            return position >= 0 && position < counts.length ? counts[position] : 0;
+        }
+    }
+
+    /**
+     * Adds an amount to the sketch
+     *
+     * @param amount The amount in minor units
+     */
+    public void add(long amount) {
+        update(amount, 1);
+    }
+
+    /**
+     * Removes an amount which was added to the sketch
+     *
+     * @param amount The amount in minor units
+     */
+    public void remove(long amount) {
+        update(amount, -1);
+    }
+
+    /**
+     * @return The number of amounts in the sketch
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimates a quantile in O(number of buckets). The estimate is within
+     * RELATIVE_ACCURACY of the amount at the quantile's rank, before rounding
+     * to a minor unit
+     *
+     * @param quantile The quantile, between 0 and 1
+     *
+     * @return The estimated amount at the quantile in minor units
+     *
+     * @throws IllegalStateException if the sketch is empty
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            throw new IllegalStateException("The sketch holds no amounts");
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, quantile)) * (count - 1));
+        long seen = 0;
+        //Negative amounts are visited from the largest magnitude to the smallest
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            seen += negative.counts[i];
+            if (seen > rank) {
+                return -Math.round(valueOf(negative.firstIndex + i));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            seen += positive.counts[i];
+            if (seen > rank) {
+                return Math.round(valueOf(positive.firstIndex + i));
+            }
+        }
+        throw new IllegalStateException("The bucket counts do not add up to the count");
+    }
+
+    /**
+     * Adds to the count of the bucket holding an amount
+     *
+     * @param amount The amount in minor units
+     * @param delta 1 if the amount is being added, -1 if it is being removed
+     */
+    private void update(long amount, int delta) {
+        if (amount == 0) {
+            if (delta < 0 && zeroCount == 0) {
+                return;
+            }
+            zeroCount += delta;
+        } else {
+            Buckets buckets = amount > 0 ? positive : negative;
+            int index = indexOf(Math.abs((double) amount));
+            if (delta < 0 && buckets.get(index) == 0) {
+                return; //The amount was never added
+            }
+            buckets.add(index, delta);
+        }
+        count += delta;
+    }
+
+    /**
+     * @param magnitude A magnitude of at least 1
+     *
+     * @return The index of the bucket holding the magnitude
+     */
+    private static int indexOf(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    /**
+     * @param index The index of a bucket
+     *
+     * @return The magnitude within RELATIVE_ACCURACY of every magnitude in the bucket
+     */
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
@@ -18,6 +18,7 @@ public class Request {
     public static final int NONE = 0; //Indicates Request is not acting on an object
     public static final int ACCOUNT = 1; //Indicates Request is modifying an account
     public static final int TRANSACTION = 2; //Indicates Request is modifying a transaction
+    public static final int FILE = 3; //Indicates Request is acting on a file
     
     //Class variables
     private final String action;
@@ -28,6 +29,11 @@ public class Request {
         ONE_PARAM_ACTION_DESCRIPTIONS.put("quit", "terminate the program");
         ONE_PARAM_ACTION_DESCRIPTIONS.put("display account", "display all currently loaded accounts");
         ONE_PARAM_ACTION_DESCRIPTIONS.put("display transaction", "display all transactions for the current active account");
+        ONE_PARAM_ACTION_DESCRIPTIONS.put("display spending", "display the spending by category of the current active account");
+        ONE_PARAM_ACTION_DESCRIPTIONS.put("display monthly summary", "display the spending of each month for the current active account and all accounts");
+        ONE_PARAM_ACTION_DESCRIPTIONS.put("display yearly summary", "display the spending of each year for the current active account and all accounts");
+        ONE_PARAM_ACTION_DESCRIPTIONS.put("display approximate stats", "display estimated statistics of the current active account with their error bounds");
+        ONE_PARAM_ACTION_DESCRIPTIONS.put("display all spending", "display the spending by category and month of all accounts");
 
         TWO_PARAM_ACTION_DESCRIPTIONS = new LinkedHashMap<String, String>();
         TWO_PARAM_ACTION_DESCRIPTIONS.put("add account", "make a new account");
@@ -35,6 +41,14 @@ public class Request {
         TWO_PARAM_ACTION_DESCRIPTIONS.put("change account", "change the active account");
         TWO_PARAM_ACTION_DESCRIPTIONS.put("delete account", "delete an account");
         TWO_PARAM_ACTION_DESCRIPTIONS.put("delete transaction", "delete a transaction from the current active account");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction category", "display the transactions of the current active account in a category");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction total", "display the number and total cost of the current active account's transactions between two dates");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction range", "display the transactions of the current active account between two dates");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction page", "display a page of the current active account's transactions");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction largest", "display the most expensive transactions of the current active account or all accounts");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("display transaction frequent", "display the most frequently bought items of the current active account or all accounts");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("query transaction", "search the transactions of the current active account");
+        TWO_PARAM_ACTION_DESCRIPTIONS.put("save", "save all accounts to a file");
     }
 
     /**
@@ -0,0 +1,422 @@
+package finance;
+
+//io imports
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Creates an append-only journal of every request which modifies accounts.
+ * <p>
+ * Each record is given a journal position, which increases by one with every
+ * record. Records are buffered when appended and written to disk in groups:
+ * the first thread waiting for its record to become durable writes and forces
+ * every record appended so far, so concurrent requests share a single disk sync.
+ * <p>
+ * Every record is stored as its length, its body, and a checksum of its body.
+ * A record left incomplete by a crash fails its checksum and ends the journal,
+ * so a batch of requests stored as one record is either replayed whole or not
+ * at all
+ *
+ * @author Dylan Munro
+ */
+public class RequestJournal {
+
+    //Types of records stored in the journal
+    private static final byte ADD_ACCOUNT = 1;
+    private static final byte DELETE_ACCOUNT = 2;
+    private static final byte ADD_TRANSACTION = 3;
+    private static final byte DELETE_TRANSACTION = 4;
+    private static final byte BATCH = 5; //Requests replayed together or not at all
+
+    private final Object lock = new Object();
+    private final FileChannel channel;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long lastPosition;
+    private long durablePosition;
+    private boolean isSyncing;
+    private IOException failure;
+
+    /**
+     * Receives the requests stored in a journal as it is replayed
+     */
+    public interface Replayer {
+
+        /**
+         * Applies a request read from the journal
+         *
+         * @param accountName The account which was active when a transaction
+         * request was made, or null for account requests
+         * @param request The request read from the journal
+         *
+         * @throws AccountException
+         * @throws InvalidRequestException
+         * @throws TransactionNotFoundException
+         */
+        void replay(String accountName, Request request) throws AccountException,
+                InvalidRequestException, TransactionNotFoundException;
+    }
+
+    /**
+     * Opens a journal, creating its file if it does not exist
+     *
+     * @param path The file containing the journal
+     *
+     * @throws IOException
+     */
+    public RequestJournal(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Determines if a request modifies accounts and must be journaled
+     *
+     * @param request The request being checked
+     *
+     * @return true if the request should be appended to the journal, false otherwise
+     */
+    public static boolean isJournaled(Request request) {
+        switch (request.getAction()) {
+            case "add account":
+            case "delete account":
+            case "add transaction":
+            case "delete transaction":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Replays every complete record after a position, then prepares the journal
+     * for appending. Any incomplete record at the end of the journal is discarded
+     *
+     * @param afterPosition Records at or before this position are skipped
+     * @param replayer Receives each replayed request
+     *
+     * @return The number of records replayed
+     *
+     * @throws IOException
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException
+     */
+    public int replay(long afterPosition, Replayer replayer) throws IOException,
+            AccountException, InvalidRequestException, TransactionNotFoundException {
+        int numReplayed = 0;
+        long validLength = 0;
+        lastPosition = afterPosition;
+        channel.position(0);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel), 1 << 16));
+        while (true) {
+            byte[] body;
+            try {
+                int length = input.readInt();
+                if (length < Long.BYTES + 1 || length > channel.size() - validLength) {
+                    break;
+                }
+                body = new byte[length];
+                input.readFully(body);
+                CRC32 checksum = new CRC32();
+                checksum.update(body);
+                if (input.readInt() != (int) checksum.getValue()) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            validLength += Integer.BYTES * 2 + body.length;
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+            long position = record.readLong();
+            if (position > afterPosition) {
+                decode(record, replayer);
+                numReplayed++;
+            }
+            lastPosition = Math.max(lastPosition, position);
+        }
+        channel.truncate(validLength);
+        channel.position(validLength);
+        durablePosition = lastPosition;
+        return numReplayed;
+    }
+
+    /**
+     * Encodes a request as the body of a record, so a request which cannot be
+     * journaled is found before it is executed
+     *
+     * @param accountName The active account the request is executed on
+     * @param request The request being journaled
+     *
+     * @return The encoded request, to be passed to {@link #append(byte[])}
+     *
+     * @throws IOException if the request cannot be journaled, such as when a
+     * name is longer than 65535 bytes once encoded
+     */
+    public static byte[] encode(String accountName, Request request) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        encode(accountName, request, new DataOutputStream(body));
+        return body.toByteArray();
+    }
+
+    /**
+     * Encodes a batch of requests as the body of a single record, so either
+     * every request in the batch is replayed or none are
+     *
+     * @param accountName The account every request in the batch is executed on
+     * @param requests The requests being journaled, in the order they are executed
+     *
+     * @return The encoded batch, to be passed to {@link #append(byte[])}
+     *
+     * @throws IOException if a request cannot be journaled
+     */
+    public static byte[] encodeBatch(String accountName, List<? extends Request> requests)
+            throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64 * requests.size());
+        DataOutputStream output = new DataOutputStream(body);
+        output.writeByte(BATCH);
+        output.writeInt(requests.size());
+        for (Request current : requests) {
+            encode(accountName, current, output);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Appends an encoded request or batch to the journal. The record is not
+     * durable until {@link #sync(long)} returns for its position
+     *
+     * @param encoded The request or batch returned by {@link #encode(String, Request)}
+     * or {@link #encodeBatch(String, List)}
+     *
+     * @return The journal position of the record
+     */
+    public long append(byte[] encoded) {
+        synchronized (lock) {
+            long position = lastPosition + 1;
+            ByteBuffer body = ByteBuffer.allocate(Long.BYTES + encoded.length);
+            body.putLong(position).put(encoded);
+            CRC32 checksum = new CRC32();
+            checksum.update(body.array());
+            ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 2 + body.capacity());
+            record.putInt(body.capacity()).put(body.array()).putInt((int) checksum.getValue());
+            pending.write(record.array(), 0, record.capacity());
+            lastPosition = position;
+            return position;
+        }
+    }
+
+    /**
+     * Blocks until a record is durable. If no other thread is writing to the
+     * journal, every record appended so far is written and forced to disk
+     *
+     * @param position The journal position of the record
+     *
+     * @throws IOException
+     */
+    public void sync(long position) throws IOException {
+        ByteBuffer group;
+        long groupPosition;
+        synchronized (lock) {
+            while (durablePosition < position && isSyncing && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing the journal");
+                }
+            }
+            if (failure != null) {
+                throw new IOException("The journal could not be written", failure);
+            }
+            if (durablePosition >= position) {
+                return;
+            }
+            isSyncing = true;
+            group = ByteBuffer.wrap(pending.toByteArray());
+            groupPosition = lastPosition;
+            pending.reset();
+        }
+        IOException error = null;
+        try {
+            while (group.hasRemaining()) {
+                channel.write(group);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        } finally {
+            synchronized (lock) {
+                isSyncing = false;
+                if (error == null) {
+                    durablePosition = groupPosition;
+                } else {
+                    failure = error;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes every appended record to disk
+     *
+     * @throws IOException
+     */
+    public void syncAll() throws IOException {
+        long position;
+        synchronized (lock) {
+            position = lastPosition;
+        }
+        sync(position);
+    }
+
+    /**
+     * Discards every record in the journal. This should only be called once the
+     * records are reflected in a snapshot, and while no requests are appended
+     *
+     * @throws IOException
+     */
+    public void truncate() throws IOException {
+        syncAll();
+        synchronized (lock) {
+            channel.truncate(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * @return The journal position of the most recently appended record
+     */
+    public long getLastPosition() {
+        synchronized (lock) {
+            return lastPosition;
+        }
+    }
+
+    /**
+     * @return The number of bytes currently stored in the journal file
+     *
+     * @throws IOException
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Writes every appended record and closes the journal
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        try {
+            syncAll();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the details of a request
+     *
+     * @param accountName The active account the request was executed on
+     * @param request The request being written
+     * @param output The stream the request is written to
+     *
+     * @throws IOException
+     */
+    private static void encode(String accountName, Request request, DataOutputStream output)
+            throws IOException {
+        switch (request.getAction()) {
+            case "add account":
+                output.writeByte(ADD_ACCOUNT);
+                output.writeUTF(((AccountRequest) request).getAccountName());
+                break;
+            case "delete account":
+                output.writeByte(DELETE_ACCOUNT);
+                output.writeUTF(((AccountRequest) request).getAccountName());
+                break;
+            case "add transaction":
+                TransactionRequest addRequest = (TransactionRequest) request;
+                output.writeByte(ADD_TRANSACTION);
+                output.writeUTF(accountName);
+                output.writeUTF(addRequest.getItemName());
+                output.writeLong(addRequest.getItemFee());
+                output.writeUTF(addRequest.getItemCategory());
+                output.writeLong(addRequest.getDate().toEpochDay());
+                output.writeInt(addRequest.getQuantity());
+                break;
+            case "delete transaction":
+                output.writeByte(DELETE_TRANSACTION);
+                output.writeUTF(accountName);
+                output.writeInt(((TransactionRequest) request).getTransactionNumber());
+                break;
+            default:
+                throw new IOException("The request \"" + request.getAction()
+                        + "\" can not be journaled");
+        }
+    }
+
+    /**
+     * Reads the details of a request and passes it to a replayer
+     *
+     * @param input The stream containing the request, after its journal position
+     * @param replayer Receives the request
+     *
+     * @throws IOException
+     * @throws AccountException
+     * @throws InvalidRequestException
+     * @throws TransactionNotFoundException
+     */
+    private void decode(DataInputStream input, Replayer replayer) throws IOException,
+            AccountException, InvalidRequestException, TransactionNotFoundException {
+        byte type = input.readByte();
+        switch (type) {
+            case ADD_ACCOUNT:
+                replayer.replay(null, new AccountRequest("add account", input.readUTF()));
+                break;
+            case DELETE_ACCOUNT:
+                replayer.replay(null, new AccountRequest("delete account", input.readUTF()));
+                break;
+            case ADD_TRANSACTION:
+                String accountName = input.readUTF();
+                String itemName = input.readUTF();
+                long itemFee = input.readLong();
+                String itemCategory = input.readUTF();
+                LocalDate date = LocalDate.ofEpochDay(input.readLong());
+                int quantity = input.readInt();
+                replayer.replay(accountName, new TransactionRequest("add transaction",
+                        itemName, itemFee, itemCategory, date, quantity));
+                break;
+            case DELETE_TRANSACTION:
+                String deleteAccountName = input.readUTF();
+                replayer.replay(deleteAccountName,
+                        new TransactionRequest("delete transaction", input.readInt()));
+                break;
+            case BATCH:
+                int numOfRequests = input.readInt();
+                for (int i = 0; i < numOfRequests; i++) {
+                    decode(input, replayer);
+                }
+                break;
+            default:
+                throw new IOException("The journal contains an unknown record type " + type);
+        }
+    }
+}
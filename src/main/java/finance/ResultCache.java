@@ -0,0 +1,164 @@
+package finance;
+
+//imports
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates a cache of the output of requests which only read accounts.
+ * <p>
+ * Each output is stored with the version of the data it was produced from. A
+ * cached output is only returned while the caller's version still matches, so
+ * changing an account invalidates its entries without visiting the cache. The
+ * cache is bounded by both the number of entries and their total length in
+ * characters, and evicts the least recently used entry first. Every method is
+ * synchronized, so the cache may be shared by threads executing requests
+ *
+ * @author Dylan Munro
+ */
+public class ResultCache {
+
+    //Private Constants
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final long DEFAULT_MAX_CHARS = 16L * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxChars;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long numOfChars;
+
+    //Statistics
+    private long numOfHits;
+    private long numOfMisses;
+    private long numOfEvictions;
+
+    /**
+     * Holds a cached output and the version it was produced from
+     */
+    private static final class Entry {
+
+        private final long version;
+        private final String output;
+
+        /**
+         * @param version The version of the data the output was produced from
+         * @param output The output of the request
+         */
+        private Entry(long version, String output) {
+            this.version = version;
+            this.output = output;
+        }
+    }
+
+    /**
+     * Creates a cache of at most 256 entries and 16 million characters
+     */
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * @param maxEntries The largest number of outputs kept
+     * @param maxChars The largest total length of the outputs kept
+     */
+    public ResultCache(int maxEntries, long maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Finds the cached output of a request
+     *
+     * @param key The key describing the request
+     * @param version The current version of the data the request reads
+     *
+     * @return The cached output, or null if no output was cached for the
+     * current version
+     */
+    public synchronized String get(String key, long version) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.version != version) {
+            numOfMisses++;
+            return null;
+        }
+        numOfHits++;
+        return entry.output;
+    }
+
+    /**
+     * Caches the output of a request, evicting the least recently used outputs
+     * until the cache is within its bounds. Outputs longer than the whole cache
+     * are not kept
+     *
+     * @param key The key describing the request
+     * @param version The version of the data the output was produced from
+     * @param output The output of the request
+     */
+    public synchronized void put(String key, long version, String output) {
+        Entry replaced = entries.remove(key);
+        if (replaced != null) {
+            numOfChars -= replaced.output.length();
+        }
+        if (output.length() > maxChars) {
+            return;
+        }
+        entries.put(key, new Entry(version, output));
+        numOfChars += output.length();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || numOfChars > maxChars) {
+            numOfChars -= iterator.next().getValue().output.length();
+            iterator.remove();
+            numOfEvictions++;
+        }
+    }
+
+    /**
+     * Removes every cached output
+     */
+    public synchronized void clear() {
+        entries.clear();
+        numOfChars = 0;
+    }
+
+    /**
+     * @return The number of requests answered from the cache
+     */
+    public synchronized long getNumOfHits() {
+        return numOfHits;
+    }
+
+    /**
+     * @return The number of requests which were not in the cache, or whose
+     * cached output was out of date
+     */
+    public synchronized long getNumOfMisses() {
+        return numOfMisses;
+    }
+
+    /**
+     * @return The number of outputs evicted to keep the cache within its bounds
+     */
+    public synchronized long getNumOfEvictions() {
+        return numOfEvictions;
+    }
+
+    /**
+     * @return The number of outputs in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The hit, miss, and eviction counts of the cache formatted as a string
+     */
+    @Override
+    public synchronized String toString() {
+        long numOfLookups = numOfHits + numOfMisses;
+        return "Result cache: " + numOfHits + " hits, " + numOfMisses + " misses ("
+                + (numOfLookups == 0 ? 0 : 100 * numOfHits / numOfLookups) + "% hit rate), "
+                + numOfEvictions + " evictions, " + entries.size() + " entries, "
+                + numOfChars + " characters";
+    }
+}
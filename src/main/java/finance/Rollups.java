@@ -0,0 +1,237 @@
+package finance;
+
+//imports
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Creates monthly and yearly summaries of a group of transactions which are
+ * kept up to date as transactions are added and removed.
+ * <p>
+ * Each summary holds the number of transactions, their total cost, and the
+ * total cost of each category. Adding or removing a transaction only updates
+ * the summaries of its month and year, and reading a summary never visits the
+ * transactions, so reports take time in proportion to the number of months
+ * and categories rather than the number of transactions
+ *
+ * @author Dylan Munro
+ */
+public class Rollups {
+
+    private final TreeMap<YearMonth, Summary> months = new TreeMap<>();
+    private final TreeMap<Integer, Summary> years = new TreeMap<>();
+
+    /**
+     * Describes the transactions made in a single month or year
+     */
+    public static class Summary {
+
+        private int numOfTransactions;
+        private long totalCost;
+        private final HashMap<String, long[]> categories = new HashMap<>(); //{count, cost}
+
+        /**
+         * @return The number of transactions in the period
+         */
+        public int getNumOfTransactions() {
+            return numOfTransactions;
+        }
+
+        /**
+         * @return The total cost of the transactions in the period in minor units
+         */
+        public long getTotalCost() {
+            return totalCost;
+        }
+
+        /**
+         * Ranks the categories of the period by total cost in
+         * O(number of categories * limit)
+         *
+         * @param limit The largest number of categories returned
+         *
+         * @return The categories with the largest total cost, largest first,
+         * with ties broken by category name
+         */
+        public List<String> getTopCategories(int limit) {
+            List<String> top = new ArrayList<>(limit + 1);
+            for (String category : categories.keySet()) {
+                int position = top.size();
+                while (position > 0 && ranksBefore(category, top.get(position - 1))) {
+                    position--;
+                }
+                if (position < limit) {
+                    top.add(position, category);
+                    if (top.size() > limit) {
+                        top.remove(limit);
+                    }
+                }
+            }
+            return top;
+        }
+
+        /**
+         * @param category The name of a category
+         *
+         * @return The total cost of the category's transactions in the period
+         * in minor units
+         */
+        public long getCategoryCost(String category) {
+            long[] totals = categories.get(category);
+            return totals == null ? 0 : totals[1];
+        }
+
+        /**
+         * @param category A category of the period
+         * @param other Another category of the period
+         *
+         * @return true if the category has a larger total cost than the other
+         */
+        private boolean ranksBefore(String category, String other) {
+            long cost = categories.get(category)[1];
+            long otherCost = categories.get(other)[1];
+            return cost != otherCost ? cost > otherCost
+                    : String.valueOf(category).compareTo(String.valueOf(other)) < 0;
+        }
+
+        /**
+         * Changes the totals of the period and one of its categories
+         *
+         * @param category The category of the transactions
+         * @param count The change in the number of transactions
+         * @param cost The change in total cost in minor units
+         */
+        private void update(String category, int count, long cost) {
+            numOfTransactions += count;
+            totalCost += cost;
+            long[] totals = categories.get(category);
+            if (totals == null) {
+                totals = new long[2];
+                categories.put(category, totals);
+            }
+            totals[0] += count;
+            totals[1] += cost;
+            if (totals[0] == 0) {
+                categories.remove(category);
+            }
+        }
+    }
+
+    /**
+     * Adds a transaction to the summaries of its month and year
+     *
+     * @param transaction The transaction being added
+     */
+    public void add(Transaction transaction) {
+        update(transaction, 1);
+    }
+
+    /**
+     * Removes a transaction from the summaries of its month and year
+     *
+     * @param transaction The transaction being removed
+     */
+    public void remove(Transaction transaction) {
+        update(transaction, -1);
+    }
+
+    /**
+     * Adds every transaction summarized by other rollups, in
+     * O(number of months * number of categories)
+     *
+     * @param other The rollups being added
+     */
+    public void addAll(Rollups other) {
+        merge(other, 1);
+    }
+
+    /**
+     * Removes every transaction summarized by other rollups, in
+     * O(number of months * number of categories)
+     *
+     * @param other The rollups being removed
+     */
+    public void removeAll(Rollups other) {
+        merge(other, -1);
+    }
+
+    /**
+     * @return The summary of every month with transactions, in order
+     */
+    public SortedMap<YearMonth, Summary> getMonths() {
+        return Collections.unmodifiableSortedMap(months);
+    }
+
+    /**
+     * @return The summary of every year with transactions, in order
+     */
+    public SortedMap<Integer, Summary> getYears() {
+        return Collections.unmodifiableSortedMap(years);
+    }
+
+    /**
+     * Changes the summaries of a transaction's month and year
+     *
+     * @param transaction The transaction
+     * @param sign 1 if the transaction is being added, -1 if it is being removed
+     */
+    private void update(Transaction transaction, int sign) {
+        YearMonth month = YearMonth.from(transaction.getDate());
+        String category = transaction.getItem().getCategory();
+        long cost = transaction.getTotalCost();
+        update(months, month, category, sign, sign * cost);
+        update(years, month.getYear(), category, sign, sign * cost);
+    }
+
+    /**
+     * Merges the summaries of other rollups into these rollups
+     *
+     * @param other The rollups being merged
+     * @param sign 1 if the transactions are being added, -1 if they are being removed
+     */
+    private void merge(Rollups other, int sign) {
+        for (Map.Entry<YearMonth, Summary> month : other.months.entrySet()) {
+            for (Map.Entry<String, long[]> category : month.getValue().categories.entrySet()) {
+                long[] totals = category.getValue();
+                update(months, month.getKey(), category.getKey(), sign * (int) totals[0],
+                        sign * totals[1]);
+            }
+        }
+        for (Map.Entry<Integer, Summary> year : other.years.entrySet()) {
+            for (Map.Entry<String, long[]> category : year.getValue().categories.entrySet()) {
+                long[] totals = category.getValue();
+                update(years, year.getKey(), category.getKey(), sign * (int) totals[0],
+                        sign * totals[1]);
+            }
+        }
+    }
+
+    /**
+     * Changes the summary of a period, removing the summary once it has no
+     * transactions
+     *
+     * @param periods The summaries of every period
+     * @param period The period being changed
+     * @param category The category of the transactions
+     * @param count The change in the number of transactions
+     * @param cost The change in total cost in minor units
+     */
+    private static <K> void update(TreeMap<K, Summary> periods, K period, String category,
+            int count, long cost) {
+        Summary summary = periods.get(period);
+        if (summary == null) {
+            summary = new Summary();
+            periods.put(period, summary);
+        }
+        summary.update(category, count, cost);
+        if (summary.numOfTransactions == 0) {
+            periods.remove(period);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package finance;
+
+/**
+ * Generates a SaveRequest object which can be executed to write every account
+ * to a file. The SaveRequest object contains the path of the file
+ * 
+ * @author Dylan Munro
+ */
+public class SaveRequest extends Request {
+
+    private final String filePath;
+    
+    /**
+     * Constructor
+     *
+     * @param action The keyword describing how the user wishes to save the
+     * accounts
+     * @param filePath The path of the file the accounts are written to
+     *
+     * @throws InvalidRequestException
+     */        
+    public SaveRequest(String action, String filePath) throws InvalidRequestException {
+        super(action, true);
+        this.filePath = filePath;
+    }
+    
+    /**
+     * 
+     * @return The path of the file the accounts are written to
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+}
@@ -0,0 +1,47 @@
+package finance;
+
+/**
+ * Creates a session holding the active account of one client of an
+ * AccountManager.
+ * <p>
+ * Every client of a shared AccountManager has its own session, so selecting
+ * an account in one session does not change the account used by another.
+ * A session holds nothing but its id and a reference to its active account,
+ * so sessions are cheap to open for each client and are found by id in O(1)
+ *
+ * @author Dylan Munro
+ */
+public class Session {
+
+    private final long id;
+    private volatile Account activeAccount; //null until an account is selected
+
+    /**
+     * @param id The number identifying the session within its AccountManager
+     */
+    Session(long id) {
+        this.id = id;
+    }
+
+    /**
+     * @return The number identifying the session within its AccountManager
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return The account selected in the session, which may have been
+     * deleted since, or null if no account was selected
+     */
+    Account getActiveAccount() {
+        return activeAccount;
+    }
+
+    /**
+     * @param account The account selected in the session, or null
+     */
+    void setActiveAccount(Account account) {
+        activeAccount = account;
+    }
+}
@@ -0,0 +1,63 @@
+package finance;
+
+//io imports
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.List;
+
+/**
+ * Converts account files between the JSON format and the binary snapshot format.
+ * <p>
+ * Usage: {@code SnapshotConverter <input> <output>}. A JSON input is converted to
+ * a snapshot, and a snapshot input is converted to JSON
+ *
+ * @author Dylan Munro
+ */
+public class SnapshotConverter {
+
+    /**
+     * Initial method called
+     *
+     * @param args The path of the file being converted followed by the path of
+     * the converted file
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: SnapshotConverter <input> <output>");
+            return;
+        }
+        try {
+            System.out.println(convert(Paths.get(args[0]), Paths.get(args[1])));
+        } catch (Exception e) {
+            System.out.println("The file \"" + args[0] + "\" could not be converted: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Converts an accounts file to the other format
+     *
+     * @param input The file being converted
+     * @param output The file the converted accounts are written to
+     *
+     * @return A message describing the conversion
+     *
+     * @throws Exception
+     */
+    public static String convert(Path input, Path output) throws Exception {
+        List<Account> accounts;
+        if (SnapshotReader.isSnapshot(input)) {
+            accounts = new SnapshotReader().load(input);
+            new AccountWriter().write(accounts, output);
+            return "Converted " + accounts.size() + " accounts to JSON";
+        }
+        try (BufferedReader reader = Files.newBufferedReader(input)) {
+            accounts = new AccountStreamLoader().load(reader);
+        }
+        new SnapshotWriter().write(accounts, output);
+        return "Converted " + accounts.size() + " accounts to a binary snapshot";
+    }
+}
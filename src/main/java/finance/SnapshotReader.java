@@ -0,0 +1,226 @@
+package finance;
+
+//io imports
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads accounts from a binary snapshot written by {@link SnapshotWriter}.
+ * <p>
+ * The snapshot is memory-mapped rather than read through a stream, and its
+ * transactions are stored as fixed-width binary records, so no text is parsed
+ * while loading
+ *
+ * @author Dylan Munro
+ */
+public class SnapshotReader {
+
+    private long journalPosition = SnapshotWriter.NO_JOURNAL_POSITION;
+
+    /**
+     * Determines if a file is a binary snapshot
+     *
+     * @param path The file being checked
+     *
+     * @return true if the file begins with the snapshot magic number, false otherwise
+     */
+    public static boolean isSnapshot(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == SnapshotWriter.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads every account stored in a snapshot
+     *
+     * @param path The snapshot file
+     *
+     * @return The accounts in the order they appear in the snapshot
+     *
+     * @throws IOException
+     * @throws CorruptJSONObjectException
+     */
+    public List<Account> load(Path path) throws IOException, CorruptJSONObjectException {
+        return load(path, false);
+    }
+
+    /**
+     * Reads every account stored in a snapshot.
+     * <p>
+     * If the accounts are loaded lazily, only the string table and the account
+     * directory are read. The transactions of each account stay in the mapped
+     * file until the account is hydrated
+     *
+     * @param path The snapshot file
+     * @param isLazy true if transactions should only be read when first needed
+     *
+     * @return The accounts in the order they appear in the snapshot
+     *
+     * @throws IOException
+     * @throws CorruptJSONObjectException
+     */
+    public List<Account> load(Path path, boolean isLazy) throws IOException, CorruptJSONObjectException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshots larger than 2 GB can not be mapped");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return load(buffer, isLazy);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new CorruptJSONObjectException("The snapshot \"" + path + "\" is truncated");
+        }
+    }
+
+    /**
+     * Files written as a snapshot of a {@link RequestJournal} record the last
+     * journal record they reflect
+     *
+     * @return The journal position of the last snapshot loaded, or
+     * {@link SnapshotWriter#NO_JOURNAL_POSITION} if the snapshot was not taken of a journal
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * Reads every account stored in a mapped snapshot
+     *
+     * @param buffer The contents of the snapshot
+     * @param isLazy true if transactions should only be read when first needed
+     *
+     * @return The accounts in the order they appear in the snapshot
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private List<Account> load(ByteBuffer buffer, boolean isLazy) throws CorruptJSONObjectException {
+        if (buffer.getInt() != SnapshotWriter.MAGIC) {
+            throw new CorruptJSONObjectException("The file is not an account snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != SnapshotWriter.VERSION) {
+            throw new CorruptJSONObjectException("Snapshot version " + version
+                    + " is not supported");
+        }
+        buffer.getShort(); //Unused flags
+        journalPosition = buffer.getLong();
+
+        String[] strings = new String[count(buffer, Integer.BYTES)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] encoded = new byte[count(buffer, Byte.BYTES)];
+            buffer.get(encoded);
+            strings[i] = SymbolTable.getGlobal().intern(new String(encoded, StandardCharsets.UTF_8));
+        }
+
+        int numOfAccounts = count(buffer, SnapshotWriter.DIRECTORY_ENTRY_SIZE);
+        List<Account> accounts = new ArrayList<>(numOfAccounts);
+        for (int i = 0; i < numOfAccounts; i++) {
+            int entry = buffer.position() + i * SnapshotWriter.DIRECTORY_ENTRY_SIZE;
+            String accountName = string(strings, buffer.getInt(entry));
+            int numOfTransactions = buffer.getInt(entry + Integer.BYTES);
+            long position = buffer.getLong(entry + Integer.BYTES * 2);
+            if (numOfTransactions < 0 || position < 0 || position > buffer.limit()
+                    || (long) numOfTransactions * SnapshotWriter.RECORD_SIZE > buffer.limit() - position) {
+                throw new CorruptJSONObjectException("The snapshot is corrupt");
+            }
+            int offset = (int) position;
+            if (isLazy) {
+                accounts.add(new Account(accountName, () -> readTransactions(buffer, offset,
+                        numOfTransactions, strings), numOfTransactions));
+            } else {
+                Account account = new Account(accountName);
+                for (Transaction current : readTransactions(buffer, offset, numOfTransactions, strings)) {
+                    account.addLoadedTransaction(current);
+                }
+                accounts.add(account);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Reads the transaction records of an account
+     *
+     * @param buffer The contents of the snapshot
+     * @param offset The position of the account's first record
+     * @param numOfTransactions The number of records belonging to the account
+     * @param strings The string table of the snapshot
+     *
+     * @return The transactions of the account, in order
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private List<Transaction> readTransactions(ByteBuffer buffer, int offset, int numOfTransactions,
+            String[] strings) throws CorruptJSONObjectException {
+        List<Transaction> transactions = new ArrayList<>(numOfTransactions);
+        for (int i = 0; i < numOfTransactions; i++) {
+            int record = offset + i * SnapshotWriter.RECORD_SIZE;
+            String itemName = string(strings, buffer.getInt(record));
+            String itemCategory = string(strings, buffer.getInt(record + 4));
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt(record + 8));
+            if (!Transaction.isSupportedDate(date)) {
+                throw new CorruptJSONObjectException("The snapshot contains an invalid date");
+            }
+            long itemFee = buffer.getLong(record + 12);
+            int quantity = buffer.getInt(record + 20);
+            if (!Transaction.isSupportedCost(itemFee, quantity)) {
+                throw new CorruptJSONObjectException(
+                        "The snapshot contains a transaction whose total cost is too large");
+            }
+            transactions.add(new Transaction(itemName, itemFee, itemCategory, date, quantity));
+        }
+        return transactions;
+    }
+
+    /**
+     * Reads the number of elements that follow in the snapshot.
+     * <p>
+     * The count is checked against the bytes left in the snapshot, so a corrupt
+     * count can not cause a huge allocation
+     *
+     * @param buffer The contents of the snapshot
+     * @param elementSize The minimum number of bytes taken by each element
+     *
+     * @return The number of elements
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private int count(ByteBuffer buffer, int elementSize) throws CorruptJSONObjectException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / elementSize) {
+            throw new CorruptJSONObjectException("The snapshot is corrupt");
+        }
+        return count;
+    }
+
+    /**
+     * Looks up a string in the string table
+     *
+     * @param strings The string table of the snapshot
+     * @param id The id of the string
+     *
+     * @return The string with the given id
+     *
+     * @throws CorruptJSONObjectException
+     */
+    private String string(String[] strings, int id) throws CorruptJSONObjectException {
+        if (id < 0 || id >= strings.length) {
+            throw new CorruptJSONObjectException("The snapshot refers to unknown string " + id);
+        }
+        return strings[id];
+    }
+}
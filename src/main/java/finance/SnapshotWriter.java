@@ -0,0 +1,208 @@
+package finance;
+
+//io imports
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes accounts to a file in the binary snapshot format read by
+ * {@link SnapshotReader}.
+ * <p>
+ * A snapshot contains, in order:
+ * <ul>
+ * <li>A header: the magic number, the format version, and the last journal
+ * position reflected in the snapshot</li>
+ * <li>A string table holding every distinct account name, item name, and
+ * category once</li>
+ * <li>A directory giving each account's name, number of transactions, and the
+ * file offset of its transactions</li>
+ * <li>Fixed-width transaction records, each holding the string table ids of the
+ * item name and category, the epoch day of the date, the fee in minor units,
+ * and the quantity</li>
+ * </ul>
+ * As with {@link AccountWriter}, the snapshot is written to a temporary file
+ * which then atomically replaces the destination
+ *
+ * @author Dylan Munro
+ */
+public class SnapshotWriter {
+
+    //Public Constants
+    public static final int MAGIC = 0x464D534E; //"FMSN"
+    public static final short VERSION = 1;
+    public static final long NO_JOURNAL_POSITION = -1; //Indicates a snapshot was not taken of a journal
+    public static final int HEADER_SIZE = Integer.BYTES + Short.BYTES * 2 + Long.BYTES;
+    public static final int DIRECTORY_ENTRY_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    public static final int RECORD_SIZE = Integer.BYTES * 4 + Long.BYTES;
+
+    //Size of the buffer between the records being generated and the file channel
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes accounts to a snapshot, replacing its previous contents
+     *
+     * @param accounts The accounts to be written
+     * @param path The file the snapshot is written to
+     *
+     * @throws IOException
+     */
+    public void write(Collection<Account> accounts, Path path) throws IOException {
+        write(accounts, NO_JOURNAL_POSITION, path);
+    }
+
+    /**
+     * Writes accounts to a snapshot of a journal, replacing its previous contents
+     *
+     * @param accounts The accounts to be written
+     * @param journalPosition The last journal record reflected in the accounts,
+     * or {@link #NO_JOURNAL_POSITION} if the file is not a journal snapshot
+     * @param path The file the snapshot is written to
+     *
+     * @throws IOException
+     */
+    public void write(Collection<Account> accounts, long journalPosition, Path path)
+            throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path tempFile = Files.createTempFile(absolutePath.getParent(),
+                absolutePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(accounts, journalPosition, channel);
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, absolutePath, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new IOException("The file \"" + path + "\" could not be replaced: " + e, e);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Writes the snapshot of accounts to a channel
+     *
+     * @param accounts The accounts to be written
+     * @param journalPosition The last journal record reflected in the accounts
+     * @param channel The channel the snapshot is written to
+     *
+     * @throws IOException
+     */
+    private void write(Collection<Account> accounts, long journalPosition, FileChannel channel)
+            throws IOException {
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        long stringTableSize = Integer.BYTES;
+        for (Account account : accounts) {
+            stringTableSize += addString(account.getName(), stringIds, strings);
+            for (Transaction current : account.getTransactions()) {
+                stringTableSize += addString(current.getItem().getName(), stringIds, strings);
+                stringTableSize += addString(current.getItem().getCategory(), stringIds, strings);
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(journalPosition);
+        buffer.putInt(strings.size());
+        for (byte[] current : strings) {
+            ensureCapacity(buffer, Integer.BYTES, channel);
+            buffer.putInt(current.length);
+            for (int written = 0; written < current.length; ) {
+                ensureCapacity(buffer, 1, channel);
+                int length = Math.min(buffer.remaining(), current.length - written);
+                buffer.put(current, written, length);
+                written += length;
+            }
+        }
+
+        long recordsOffset = HEADER_SIZE + stringTableSize + Integer.BYTES
+                + (long) DIRECTORY_ENTRY_SIZE * accounts.size();
+        ensureCapacity(buffer, Integer.BYTES, channel);
+        buffer.putInt(accounts.size());
+        for (Account account : accounts) {
+            ensureCapacity(buffer, DIRECTORY_ENTRY_SIZE, channel);
+            buffer.putInt(stringIds.get(account.getName()));
+            buffer.putInt(account.getNumOfTransactions());
+            buffer.putLong(recordsOffset);
+            recordsOffset += (long) RECORD_SIZE * account.getNumOfTransactions();
+        }
+
+        for (Account account : accounts) {
+            for (Transaction current : account.getTransactions()) {
+                Item item = current.getItem();
+                ensureCapacity(buffer, RECORD_SIZE, channel);
+                buffer.putInt(stringIds.get(item.getName()));
+                buffer.putInt(stringIds.get(item.getCategory()));
+                buffer.putInt(Transaction.epochDay(current.getDate()));
+                buffer.putLong(item.getFee());
+                buffer.putInt(current.getQuantity());
+            }
+        }
+        flush(buffer, channel);
+    }
+
+    /**
+     * Adds a string to the string table if it is not already present
+     *
+     * @param str The string being added
+     * @param stringIds The id of every string in the table
+     * @param strings The UTF-8 encoding of every string in the table, in id order
+     *
+     * @return The number of bytes the string adds to the string table
+     */
+    private long addString(String str, HashMap<String, Integer> stringIds, List<byte[]> strings) {
+        if (stringIds.containsKey(str)) {
+            return 0;
+        }
+        byte[] encoded = str.getBytes(StandardCharsets.UTF_8);
+        stringIds.put(str, strings.size());
+        strings.add(encoded);
+        return Integer.BYTES + encoded.length;
+    }
+
+    /**
+     * Writes the buffer to the channel if it can not hold more bytes
+     *
+     * @param buffer The buffer being filled
+     * @param numOfBytes The number of bytes about to be put in the buffer
+     * @param channel The channel the buffer is written to
+     *
+     * @throws IOException
+     */
+    private void ensureCapacity(ByteBuffer buffer, int numOfBytes, FileChannel channel)
+            throws IOException {
+        if (buffer.remaining() < numOfBytes) {
+            flush(buffer, channel);
+        }
+    }
+
+    /**
+     * Writes every byte in the buffer to the channel and empties the buffer
+     *
+     * @param buffer The buffer being written
+     * @param channel The channel the buffer is written to
+     *
+     * @throws IOException
+     */
+    private void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,265 @@
+package finance;
+
+//imports
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Creates totals of the spending of any number of transactions, by category
+ * and by month.
+ * <p>
+ * Reports are built separately over parts of the data, possibly on different
+ * threads, and then merged. Every total is an exact sum of minor units, and the
+ * totals are listed in a fixed order, so merging partial reports in any order
+ * gives the same report. Categories are counted in arrays indexed by their
+ * {@link SymbolTable} id and months in arrays indexed from the first month
+ * seen, so adding a transaction never allocates
+ *
+ * @author Dylan Munro
+ */
+public class SpendingReport {
+
+    //Private Constants
+    private static final int INITIAL_NUM_OF_MONTHS = 16;
+
+    private final SymbolTable symbols = SymbolTable.getGlobal();
+    private int numOfTransactions;
+    private long totalCost;
+    private int[] categoryCounts = new int[0]; //Indexed by category id
+    private long[] categoryCosts = new long[0];
+    private int firstMonth; //Months since year 0 of the first counted month
+    private int[] monthCounts = new int[0];
+    private long[] monthCosts = new long[0];
+
+    /**
+     * Describes the number of transactions and total cost of a month
+     */
+    public static class MonthTotal {
+
+        private final YearMonth month;
+        private final int numOfTransactions;
+        private final long totalCost;
+
+        /**
+         * @param month The month
+         * @param numOfTransactions The number of transactions in the month
+         * @param totalCost The total cost of the transactions in minor units
+         */
+        public MonthTotal(YearMonth month, int numOfTransactions, long totalCost) {
+            this.month = month;
+            this.numOfTransactions = numOfTransactions;
+            this.totalCost = totalCost;
+        }
+
+        /**
+         * @return The month
+         */
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        /**
+         * @return The number of transactions in the month
+         */
+        public int getNumOfTransactions() {
+            return numOfTransactions;
+        }
+
+        /**
+         * @return The total cost of the transactions in the month in minor units
+         */
+        public long getTotalCost() {
+            return totalCost;
+        }
+
+        /**
+         * @return The month, number of transactions, and total cost formatted as a string
+         */
+        @Override
+        public String toString() {
+            return month + ": " + numOfTransactions + " transactions, "
+                    + Money.toString(totalCost) + " spent";
+        }
+    }
+
+    /**
+     * Adds a transaction to the report
+     *
+     * @param epochDay The epoch day of the transaction's date
+     * @param cost The total cost of the transaction in minor units
+     * @param categoryId The symbol id of the transaction's category
+     *
+     * @throws ArithmeticException if a total becomes too large to be held in minor units
+     */
+    public void add(int epochDay, long cost, int categoryId) {
+        numOfTransactions++;
+        totalCost = Math.addExact(totalCost, cost);
+        if (categoryId >= categoryCounts.length) {
+            growCategories(categoryId + 1);
+        }
+        categoryCounts[categoryId]++;
+        categoryCosts[categoryId] = Math.addExact(categoryCosts[categoryId], cost);
+        int month = ensureMonth(monthOf(epochDay));
+        monthCounts[month]++;
+        monthCosts[month] = Math.addExact(monthCosts[month], cost);
+    }
+
+    /**
+     * Adds every transaction of another report to this report
+     *
+     * @param other The report being merged
+     *
+     * @throws ArithmeticException if a total becomes too large to be held in minor units
+     */
+    public void merge(SpendingReport other) {
+        numOfTransactions += other.numOfTransactions;
+        totalCost = Math.addExact(totalCost, other.totalCost);
+        if (other.categoryCounts.length > categoryCounts.length) {
+            growCategories(other.categoryCounts.length);
+        }
+        for (int i = 0; i < other.categoryCounts.length; i++) {
+            categoryCounts[i] += other.categoryCounts[i];
+            categoryCosts[i] = Math.addExact(categoryCosts[i], other.categoryCosts[i]);
+        }
+        if (other.monthCounts.length == 0) {
+            return;
+        }
+        ensureMonth(other.firstMonth);
+        int offset = ensureMonth(other.firstMonth + other.monthCounts.length - 1)
+                - (other.monthCounts.length - 1);
+        for (int i = 0; i < other.monthCounts.length; i++) {
+            monthCounts[offset + i] += other.monthCounts[i];
+            monthCosts[offset + i] = Math.addExact(monthCosts[offset + i], other.monthCosts[i]);
+        }
+    }
+
+    /**
+     * @return The number of transactions in the report
+     */
+    public int getNumOfTransactions() {
+        return numOfTransactions;
+    }
+
+    /**
+     * @return The total cost of the transactions in the report in minor units
+     */
+    public long getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * @return The totals of every category with transactions, ordered by name
+     */
+    public List<CategoryIndex.CategoryTotal> getCategoryTotals() {
+        List<CategoryIndex.CategoryTotal> totals = new ArrayList<>();
+        for (int i = 0; i < categoryCounts.length; i++) {
+            if (categoryCounts[i] != 0) {
+                totals.add(new CategoryIndex.CategoryTotal(symbols.get(i), categoryCounts[i],
+                        categoryCosts[i]));
+            }
+        }
+        totals.sort(Comparator.comparing(CategoryIndex.CategoryTotal::getCategory));
+        return totals;
+    }
+
+    /**
+     * @return The totals of every month with transactions, in order
+     */
+    public List<MonthTotal> getMonthTotals() {
+        List<MonthTotal> totals = new ArrayList<>();
+        for (int i = 0; i < monthCounts.length; i++) {
+            if (monthCounts[i] != 0) {
+                int month = firstMonth + i;
+                totals.add(new MonthTotal(YearMonth.of(Math.floorDiv(month, 12),
+                        Math.floorMod(month, 12) + 1), monthCounts[i], monthCosts[i]));
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * @return The number of transactions and total cost of the report, followed
+     * by the totals of each category and month, formatted as a string
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Transactions: ").append(numOfTransactions)
+                .append("\nTotal spent: ").append(Money.toString(totalCost)).append("\n\n");
+        for (CategoryIndex.CategoryTotal current : getCategoryTotals()) {
+            sb.append(current.toString()).append("\n\n");
+        }
+        for (MonthTotal current : getMonthTotals()) {
+            sb.append(current.toString()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Finds the month of an epoch day without building a LocalDate, using the
+     * civil calendar algorithm of Howard Hinnant
+     *
+     * @param epochDay An epoch day
+     *
+     * @return The number of months between year 0 and the day's month
+     */
+    static int monthOf(int epochDay) {
+        long days = epochDay + 719468L; //Days since 0000-03-01
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153; //Months since March
+        long year = yearOfEra + era * 400 + (shiftedMonth >= 10 ? 1 : 0);
+        long month = shiftedMonth < 10 ? shiftedMonth + 2 : shiftedMonth - 10; //From 0
+        return (int) (year * 12 + month);
+    }
+
+    /**
+     * Widens the range of counted months until it includes a month
+     *
+     * @param month The number of months between year 0 and the month
+     *
+     * @return The position of the month in the month arrays
+     */
+    private int ensureMonth(int month) {
+        if (monthCounts.length == 0) {
+            firstMonth = month;
+            monthCounts = new int[INITIAL_NUM_OF_MONTHS];
+            monthCosts = new long[INITIAL_NUM_OF_MONTHS];
+        }
+        long position = (long) month - firstMonth;
+        if (position >= 0 && position < monthCounts.length) {
+            return (int) position;
+        }
+        long newFirstMonth = Math.min(firstMonth, month);
+        long newLength = monthCounts.length;
+        while (month - newFirstMonth >= newLength
+                || firstMonth + (long) monthCounts.length - newFirstMonth > newLength) {
+            newLength *= 2;
+        }
+        int offset = (int) (firstMonth - newFirstMonth);
+        int[] counts = new int[Math.toIntExact(newLength)];
+        long[] costs = new long[counts.length];
+        System.arraycopy(monthCounts, 0, counts, offset, monthCounts.length);
+        System.arraycopy(monthCosts, 0, costs, offset, monthCosts.length);
+        monthCounts = counts;
+        monthCosts = costs;
+        firstMonth = (int) newFirstMonth;
+        return month - firstMonth;
+    }
+
+    /**
+     * Widens the category arrays
+     *
+     * @param minLength The smallest length needed
+     */
+    private void growCategories(int minLength) {
+        int length = Math.max(minLength, categoryCounts.length * 2);
+        categoryCounts = Arrays.copyOf(categoryCounts, length);
+        categoryCosts = Arrays.copyOf(categoryCosts, length);
+    }
+}
@@ -0,0 +1,235 @@
+package finance;
+
+//imports
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Creates a thread-safe table giving every distinct item name and category one
+ * canonical String instance and a small integer id.
+ * <p>
+ * Loaders intern each name and category as it is read, so that a string
+ * repeated across millions of transactions is kept in memory once, and
+ * transaction storage can refer to strings by id instead of by reference.
+ * Symbols are never removed, so an id stays valid for the life of the program.
+ * <p>
+ * Looking up a known string only reads a concurrent map. Only adding a new
+ * symbol takes a lock
+ *
+ * @author Dylan Munro
+ */
+public class SymbolTable {
+
+    //Private Constants
+    private static final int INITIAL_CAPACITY = 64;
+    //Estimated sizes of a String, its byte array, and the table entry pointing to it
+    private static final int STRING_OVERHEAD = 24;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int ENTRY_OVERHEAD = 32 + 24 + 8;
+
+    private static final SymbolTable GLOBAL = new SymbolTable();
+
+    private final ConcurrentHashMap<String, Symbol> ids = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    //Written under the lock before the id is published in ids
+    private volatile String[] symbols = new String[INITIAL_CAPACITY];
+    private int size;
+
+    //Memory statistics
+    private final LongAdder numOfLookups = new LongAdder();
+    private final LongAdder numOfDuplicates = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final AtomicLong symbolBytes = new AtomicLong();
+
+    /**
+     * Holds the canonical instance of a string and its id
+     */
+    private static final class Symbol {
+
+        private final String str;
+        private final int id;
+        private final long numOfBytes;
+
+        /**
+         * @param str The canonical instance of the string
+         * @param id The id of the string
+         */
+        private Symbol(String str, int id) {
+            this.str = str;
+            this.id = id;
+            this.numOfBytes = estimateSize(str);
+        }
+    }
+
+    /**
+     * @return The symbol table shared by every account in the program
+     */
+    public static SymbolTable getGlobal() {
+        return GLOBAL;
+    }
+
+    /**
+     * Finds the canonical instance of a string, adding the string to the table
+     * if it has not been seen before
+     *
+     * @param str The string being interned, or null
+     *
+     * @return The canonical instance equal to the string, or null if the string is null
+     */
+    public String intern(String str) {
+        return str == null ? null : lookup(str).str;
+    }
+
+    /**
+     * Finds the id of a string, assigning the next unused id if the string has
+     * not been seen before
+     *
+     * @param str The string being looked up
+     *
+     * @return The id of the string
+     */
+    public int idOf(String str) {
+        return lookup(str).id;
+    }
+
+    /**
+     * Finds the symbol equal to a string, adding the string to the table if it
+     * has not been seen before
+     *
+     * @param str The string being looked up
+     *
+     * @return The symbol equal to the string
+     */
+    private Symbol lookup(String str) {
+        numOfLookups.increment();
+        Symbol symbol = ids.get(str);
+        if (symbol == null) {
+            synchronized (lock) {
+                symbol = ids.get(str);
+                if (symbol == null) {
+                    return add(str);
+                }
+            }
+        }
+        if (symbol.str != str) {
+            numOfDuplicates.increment();
+            bytesSaved.add(symbol.numOfBytes);
+        }
+        return symbol;
+    }
+
+    /**
+     * @param id An id returned by {@link #idOf(String)}
+     *
+     * @return The canonical string with the given id
+     *
+     * @throws IndexOutOfBoundsException if no string has the id
+     */
+    public String get(int id) {
+        String[] current = symbols;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IndexOutOfBoundsException("No symbol has the id " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * @return The number of distinct strings in the table
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return The number of times a string has been looked up
+     */
+    public long getNumOfLookups() {
+        return numOfLookups.sum();
+    }
+
+    /**
+     * @return The number of looked up strings which were separate copies of a
+     * symbol, and were replaced by its canonical instance
+     */
+    public long getNumOfDuplicates() {
+        return numOfDuplicates.sum();
+    }
+
+    /**
+     * @return The estimated number of bytes used by the table and its symbols
+     */
+    public long getSymbolBytes() {
+        return symbolBytes.get();
+    }
+
+    /**
+     * @return The estimated number of bytes of the duplicate copies replaced by
+     * canonical instances, which would otherwise be kept alive by transactions
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * @return The memory statistics of the table formatted as a string
+     */
+    @Override
+    public String toString() {
+        return "Symbols: " + size()
+                + "\nLookups: " + getNumOfLookups()
+                + "\nDuplicates replaced: " + getNumOfDuplicates()
+                + "\nSymbol memory: " + getSymbolBytes() + " bytes"
+                + "\nMemory saved: " + getBytesSaved() + " bytes";
+    }
+
+    /**
+     * Adds a new symbol. Must be called while holding the lock
+     *
+     * @param str The string being added
+     *
+     * @return The new symbol
+     */
+    private Symbol add(String str) {
+        int id = size;
+        String[] current = symbols;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = str;
+        symbols = current;
+        Symbol symbol = new Symbol(str, id);
+        ids.put(str, symbol);
+        size++;
+        symbolBytes.addAndGet(symbol.numOfBytes + ENTRY_OVERHEAD);
+        return symbol;
+    }
+
+    /**
+     * Estimates the heap used by a string, assuming compact strings
+     *
+     * @param str The string being measured
+     *
+     * @return The estimated number of bytes used by the string and its characters
+     */
+    private static long estimateSize(String str) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < str.length(); i++) {
+            if (str.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return STRING_OVERHEAD + align(ARRAY_OVERHEAD + (long) str.length() * bytesPerChar);
+    }
+
+    /**
+     * @param numOfBytes A number of bytes
+     *
+     * @return The number of bytes rounded up to the 8 byte object alignment
+     */
+    private static long align(long numOfBytes) {
+        return (numOfBytes + 7) & ~7L;
+    }
+}
@@ -1,8 +1,3 @@
-/*TODO
--Refactor Transaction(JSONObject) constructor by parsing date and quantity
-    in their own methods
--Implement total transaction cost (itemPrice * quantity)
-*/
 package finance;
 
 import java.time.LocalDate;
@@ -18,6 +13,10 @@ import org.json.simple.JSONObject;
  */
 public class Transaction {
 
+    //Public Constants
+    public static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1); //Earliest date stored
+    public static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31); //Latest date stored
+
     private final Item item;
     private final int quantity;
     private final LocalDate date;
@@ -42,12 +41,12 @@ public class Transaction {
      * Creates a Transaction which contains various information about a purchase
      *
      * @param itemName The name of the item purchased
-     * @param itemFee The fee associated with the item purchased
+     * @param itemFee The fee associated with the item purchased, in minor units
      * @param itemCategory The broad category describing the item purchased
      * @param date The date of the purchase
      * @param quantity The number of items purchased
      */
-    public Transaction(String itemName, double itemFee, String itemCategory,
+    public Transaction(String itemName, long itemFee, String itemCategory,
             LocalDate date, int quantity) {
         this.item = new Item(itemFee, itemName, itemCategory);
         this.date = date;
@@ -63,42 +62,113 @@ public class Transaction {
      */
     public Transaction(JSONObject obj) throws CorruptJSONObjectException,
             DateTimeParseException, InputMismatchException {
-        String dateString = "";
-        String temp;
-
         //process the transaction item
         if (obj.get("item") == null) {
             throw new CorruptJSONObjectException("Transaction does not have an item");
         }
         this.item = new Item((JSONObject) obj.get("item"));
+        this.quantity = parseQuantity(obj.get("quantity"), this.item);
+        this.date = parseDate(obj.get("date"));
+    }
 
-        //process the quantity of items involved in the transaction
-        if (obj.get("quantity") == null) {
+    /**
+     * Parses the quantity of a transaction from its JSON representation
+     *
+     * @param value The JSON value stored under the "quantity" key
+     * @param item The item the quantity is attached to, used in error messages
+     *
+     * @return The quantity of items involved in the transaction
+     *
+     * @throws CorruptJSONObjectException
+     */
+    static int parseQuantity(Object value, Item item) throws CorruptJSONObjectException {
+        if (value == null) {
             throw new CorruptJSONObjectException(
-                    "No integer quantity attached to the item:\n" + this.item.toString());
+                    "No integer quantity attached to the item:\n" + item.toString());
         }
+        int quantity;
         try {
-            temp = obj.get("quantity").toString();
-            this.quantity = Integer.parseInt(temp);
-        } catch (InputMismatchException e) {
+            quantity = Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
             throw new CorruptJSONObjectException(
-                    "No integer quantity attached to the item:\n" + this.item.toString());
+                    "No integer quantity attached to the item:\n" + item.toString());
         }
-        
-        //process the date of transaction
-        if (obj.get("date") == null) {
-            this.date = LocalDate.now();
-        } else {
-            try {
-                dateString = (String) obj.get("date");
-                this.date = LocalDate.parse(dateString);
-            } catch (DateTimeParseException e) {
-                throw new CorruptJSONObjectException(
-                        "The date " + dateString + " must be in the format (yyyy-mm-dd)");
-            } catch (Exception e) {
-                throw new CorruptJSONObjectException("Transaction date can not be parsed");
-            }
+        if (!isSupportedCost(item.getFee(), quantity)) {
+            throw new CorruptJSONObjectException(
+                    "The total cost of " + quantity + " of the item is too large:\n" + item.toString());
         }
+        return quantity;
+    }
+
+    /**
+     * Parses the date of a transaction from its JSON representation.
+     * <p>
+     * If no date is given, the current date is used
+     *
+     * @param value The JSON value stored under the "date" key
+     *
+     * @return The date of the transaction
+     *
+     * @throws CorruptJSONObjectException
+     */
+    static LocalDate parseDate(Object value) throws CorruptJSONObjectException {
+        if (value == null) {
+            return LocalDate.now();
+        }
+        String dateString = "";
+        LocalDate date;
+        try {
+            dateString = (String) value;
+            date = LocalDate.parse(dateString);
+        } catch (DateTimeParseException e) {
+            throw new CorruptJSONObjectException(
+                    "The date " + dateString + " must be in the format (yyyy-mm-dd)");
+        } catch (Exception e) {
+            throw new CorruptJSONObjectException("Transaction date can not be parsed");
+        }
+        if (!isSupportedDate(date)) {
+            throw new CorruptJSONObjectException("The date " + dateString + " must be between "
+                    + MIN_DATE + " and " + MAX_DATE);
+        }
+        return date;
+    }
+
+    /**
+     * @param date A date
+     *
+     * @return true if a transaction may have the date, false otherwise
+     */
+    public static boolean isSupportedDate(LocalDate date) {
+        return !date.isBefore(MIN_DATE) && !date.isAfter(MAX_DATE);
+    }
+
+    /**
+     * @param fee The fee of an item in minor units
+     * @param quantity The quantity of the item purchased
+     *
+     * @return true if the total cost of a transaction with the fee and quantity
+     * can be held in minor units by a long, false otherwise
+     */
+    public static boolean isSupportedCost(long fee, int quantity) {
+        try {
+            Math.multiplyExact(fee, quantity);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a date to the epoch day stored for it. Dates outside of the
+     * supported range are clamped to it, so that they can still bound a date
+     * range
+     *
+     * @param date A date
+     *
+     * @return The epoch day of the date
+     */
+    static int epochDay(LocalDate date) {
+        return (int) Math.max(MIN_DATE.toEpochDay(), Math.min(MAX_DATE.toEpochDay(), date.toEpochDay()));
     }
 
     /**
@@ -130,6 +200,15 @@ public class Transaction {
         return quantity;
     }
 
+    /**
+     * The total cost is the fee of the item multiplied by the quantity purchased
+     *
+     * @return The total cost of the transaction in minor units
+     */
+    public long getTotalCost() {
+        return Math.multiplyExact(item.getFee(), quantity);
+    }
+
     /**
      * @return The item, cost, and date of the transaction formatted as a string
      */
@@ -0,0 +1,540 @@
+package finance;
+
+//imports
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Creates a list of transactions stored column by column in fixed-size chunks.
+ * <p>
+ * Each chunk holds one primitive array per field: the epoch day of the date, the
+ * fee in minor units, the quantity, and the {@link SymbolTable} ids of the item name and
+ * category. No object is kept per transaction. {@link Transaction} and
+ * {@link Item} views are only built when a transaction is read, and scans over a
+ * field run over contiguous primitive arrays.
+ * <p>
+ * Every transaction is also given a row id when added. Row ids increase in the
+ * order transactions are added and never change, so indexes such as
+ * {@link DateIndex} can refer to a transaction by row id while the positions of
+ * transactions shift as others are removed.
+ * <p>
+ * A Fenwick tree over the number of transactions in each chunk locates the chunk
+ * holding any position in O(log n). Removing a transaction only shifts the
+ * transactions after it within its own chunk, so removal by position costs
+ * O(log n + CHUNK_CAPACITY) instead of the O(n) walk of a linked list
+ *
+ * @author Dylan Munro
+ */
+public class TransactionList extends AbstractList<Transaction> {
+
+    //Private Constants
+    private static final int CHUNK_CAPACITY = 512;
+    private static final int FIRST_CHUNK_CAPACITY = 8;
+    private static final int INITIAL_NUM_OF_CHUNKS = 4;
+
+    private final SymbolTable symbols = SymbolTable.getGlobal();
+    private Chunk[] chunks = new Chunk[INITIAL_NUM_OF_CHUNKS];
+    private int[] tree = new int[INITIAL_NUM_OF_CHUNKS + 1]; //Fenwick tree of chunk sizes
+    private int numOfChunks;
+    private int size;
+    private int nextRowId;
+
+    /**
+     * Holds the columns of up to CHUNK_CAPACITY consecutive transactions
+     */
+    private static final class Chunk {
+
+        private int size;
+        private int baseRowId; //No transaction in the chunk has a smaller row id
+        private int[] rowIds;
+        private int[] epochDays;
+        private long[] fees;
+        private int[] quantities;
+        private int[] nameIds;
+        private int[] categoryIds;
+
+        /**
+         * Creates an empty chunk
+         *
+         * @param capacity The number of transactions the chunk holds before growing
+         * @param baseRowId The smallest row id which can be added to the chunk
+         */
+        private Chunk(int capacity, int baseRowId) {
+            this.baseRowId = baseRowId;
+            rowIds = new int[capacity];
+            epochDays = new int[capacity];
+            fees = new long[capacity];
+            quantities = new int[capacity];
+            nameIds = new int[capacity];
+            categoryIds = new int[capacity];
+        }
+
+        /**
+         * @return The number of transactions the chunk holds before growing
+         */
+        private int capacity() {
+            return epochDays.length;
+        }
+
+        /**
+         * Doubles the capacity of every column
+         */
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            rowIds = Arrays.copyOf(rowIds, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            fees = Arrays.copyOf(fees, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            nameIds = Arrays.copyOf(nameIds, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+        }
+
+        /**
+         * Removes the transaction at an offset, shifting the later transactions
+         * of the chunk down by one
+         *
+         * @param offset The offset of the transaction within the chunk
+         */
+        private void remove(int offset) {
+            int numMoved = size - offset - 1;
+            System.arraycopy(rowIds, offset + 1, rowIds, offset, numMoved);
+            System.arraycopy(epochDays, offset + 1, epochDays, offset, numMoved);
+            System.arraycopy(fees, offset + 1, fees, offset, numMoved);
+            System.arraycopy(quantities, offset + 1, quantities, offset, numMoved);
+            System.arraycopy(nameIds, offset + 1, nameIds, offset, numMoved);
+            System.arraycopy(categoryIds, offset + 1, categoryIds, offset, numMoved);
+            size--;
+        }
+
+        /**
+         * Appends a transaction stored in another chunk
+         *
+         * @param source The chunk holding the transaction
+         * @param offset The offset of the transaction within the source chunk
+         */
+        private void copyFrom(Chunk source, int offset) {
+            rowIds[size] = source.rowIds[offset];
+            epochDays[size] = source.epochDays[offset];
+            fees[size] = source.fees[offset];
+            quantities[size] = source.quantities[offset];
+            nameIds[size] = source.nameIds[offset];
+            categoryIds[size] = source.categoryIds[offset];
+            size++;
+        }
+    }
+
+    /**
+     * Appends a transaction to the end of the list and gives it the next row id.
+     * Only the fields of the transaction are stored, not the transaction itself
+     *
+     * @param transaction The transaction being added
+     *
+     * @return true
+     */
+    @Override
+    public boolean add(Transaction transaction) {
+        if (numOfChunks == 0 || chunks[numOfChunks - 1].size == CHUNK_CAPACITY) {
+            addChunk();
+        } else if (chunks[numOfChunks - 1].size == chunks[numOfChunks - 1].capacity()) {
+            chunks[numOfChunks - 1].grow();
+        }
+        int chunk = numOfChunks - 1;
+        Chunk last = chunks[chunk];
+        Item item = transaction.getItem();
+        last.rowIds[last.size] = nextRowId;
+        nextRowId = Math.incrementExact(nextRowId);
+        last.epochDays[last.size] = Transaction.epochDay(transaction.getDate());
+        last.fees[last.size] = item.getFee();
+        last.quantities[last.size] = transaction.getQuantity();
+        last.nameIds[last.size] = symbols.idOf(item.getName());
+        last.categoryIds[last.size] = symbols.idOf(item.getCategory());
+        last.size++;
+        updateTree(chunk, 1);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Builds the transaction at a position in O(log n)
+     *
+     * @param index The position of the transaction, starting at 0
+     *
+     * @return A new view of the transaction at the position
+     */
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        long location = locate(index);
+        return view(chunks[(int) (location >>> 32)], (int) location);
+    }
+
+    /**
+     * @param index The position of a transaction, starting at 0
+     *
+     * @return The row id of the transaction
+     */
+    public int getRowId(int index) {
+        checkIndex(index);
+        long location = locate(index);
+        return chunks[(int) (location >>> 32)].rowIds[(int) location];
+    }
+
+    /**
+     * @return The row id of the most recently added transaction, or -1 if no
+     * transaction has been added
+     */
+    public int getLastRowId() {
+        return nextRowId - 1;
+    }
+
+    /**
+     * Finds the position of a transaction from its row id in O(log n), using a
+     * binary search over the chunks and then over the row ids of a single chunk
+     *
+     * @param rowId The row id of the transaction
+     *
+     * @return The position of the transaction, or -1 if it is not in the list
+     */
+    public int indexOfRow(int rowId) {
+        if (numOfChunks == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = numOfChunks - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (chunks[middle].baseRowId <= rowId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int offset = Arrays.binarySearch(chunks[low].rowIds, 0, chunks[low].size, rowId);
+        return offset < 0 ? -1 : prefixSize(low) + offset;
+    }
+
+    /**
+     * Finds the first transaction whose row id is at least a given row id, in
+     * O(log n). Row ids increase with position, so this is the position a
+     * deleted transaction held relative to the transactions remaining
+     *
+     * @param rowId A row id, which need not belong to a transaction in the list
+     *
+     * @return The position of the first transaction with a row id at least the
+     * given row id, or the size of the list if there is none
+     */
+    public int indexOfRowAtLeast(int rowId) {
+        if (numOfChunks == 0) {
+            return 0;
+        }
+        int low = 0;
+        int high = numOfChunks - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (chunks[middle].baseRowId <= rowId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int offset = Arrays.binarySearch(chunks[low].rowIds, 0, chunks[low].size, rowId);
+        return prefixSize(low) + (offset < 0 ? -offset - 1 : offset);
+    }
+
+    /**
+     * Removes the transaction at a position
+     *
+     * @param index The position of the transaction, starting at 0
+     *
+     * @return A view of the removed transaction
+     */
+    @Override
+    public Transaction remove(int index) {
+        checkIndex(index);
+        long location = locate(index);
+        int chunk = (int) (location >>> 32);
+        int offset = (int) location;
+        Transaction removed = view(chunks[chunk], offset);
+        chunks[chunk].remove(offset);
+        updateTree(chunk, -1);
+        size--;
+        modCount++;
+        if (numOfChunks > 1 && size < numOfChunks * (CHUNK_CAPACITY / 4)) {
+            compact();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every transaction from the list
+     */
+    @Override
+    public void clear() {
+        chunks = new Chunk[INITIAL_NUM_OF_CHUNKS];
+        tree = new int[INITIAL_NUM_OF_CHUNKS + 1];
+        numOfChunks = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return The number of transactions in the list
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return An iterator building each transaction in order in O(1) per transaction
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Iterates over the transactions from a position onwards. The position is
+     * found in O(log n), and each following transaction in O(1)
+     *
+     * @param fromIndex The position of the first transaction visited, starting at 0
+     *
+     * @return An iterator over the transactions from the position to the end of the list
+     */
+    public Iterator<Transaction> iterator(int fromIndex) {
+        if (fromIndex < 0 || fromIndex > size) {
+            throw new IndexOutOfBoundsException("Index: " + fromIndex + ", Size: " + size);
+        }
+        long location = fromIndex == size ? 0 : locate(fromIndex);
+        return new Iterator<Transaction>() {
+            private final int expectedModCount = modCount;
+            private int chunk = (int) (location >>> 32);
+            private int offset = (int) location;
+            private int visited = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return visited < size;
+            }
+
+            @Override
+            public Transaction next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (visited >= size) {
+                    throw new NoSuchElementException();
+                }
+                while (offset >= chunks[chunk].size) {
+                    chunk++;
+                    offset = 0;
+                }
+                visited++;
+                return view(chunks[chunk], offset++);
+            }
+        };
+    }
+
+    /**
+     * Sums the fee multiplied by the quantity of every transaction, reading only
+     * the fee and quantity columns. Nothing is allocated and no value is boxed
+     *
+     * @return The total cost of every transaction in the list in minor units
+     *
+     * @throws ArithmeticException if the total is too large to be held in minor units
+     */
+    public long totalCost() {
+        long total = 0;
+        for (int i = 0; i < numOfChunks; i++) {
+            Chunk chunk = chunks[i];
+            long[] fees = chunk.fees;
+            int[] quantities = chunk.quantities;
+            for (int j = 0; j < chunk.size; j++) {
+                total = Math.addExact(total, Math.multiplyExact(fees[j], quantities[j]));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Finds the transactions with the largest total cost in O(n log k), reading
+     * the stored fields directly without building any Transaction
+     *
+     * @param k The largest number of transactions found
+     *
+     * @return The row ids of the k most expensive transactions, most expensive
+     * first, with transactions of equal cost in the order they were added
+     */
+    public int[] getLargestCostRowIds(int k) {
+        BoundedHeap heap = new BoundedHeap(Math.min(k, size));
+        for (int i = 0; i < numOfChunks; i++) {
+            Chunk chunk = chunks[i];
+            for (int j = 0; j < chunk.size; j++) {
+                heap.offer(Math.multiplyExact(chunk.fees[j], chunk.quantities[j]), chunk.rowIds[j]);
+            }
+        }
+        return heap.getValues();
+    }
+
+    /**
+     * Adds a range of transactions to a spending report, reading the stored
+     * fields directly without building any Transaction
+     *
+     * @param fromIndex The position of the first transaction, starting at 0
+     * @param toIndex The position after the last transaction
+     * @param report The report the transactions are added to
+     */
+    public void summarize(int fromIndex, int toIndex, SpendingReport report) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("The range " + fromIndex + " to " + toIndex
+                    + " is not within the list of size " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        long location = locate(fromIndex);
+        int chunk = (int) (location >>> 32);
+        int offset = (int) location;
+        for (int remaining = toIndex - fromIndex; remaining > 0; chunk++, offset = 0) {
+            Chunk current = chunks[chunk];
+            int end = Math.min(current.size, offset + remaining);
+            for (int j = offset; j < end; j++) {
+                report.add(current.epochDays[j],
+                        Math.multiplyExact(current.fees[j], current.quantities[j]), current.categoryIds[j]);
+            }
+            remaining -= end - offset;
+        }
+    }
+
+    /**
+     * Builds the Transaction and Item stored at an offset of a chunk
+     *
+     * @param chunk The chunk holding the transaction
+     * @param offset The offset of the transaction within the chunk
+     *
+     * @return A new Transaction holding the stored fields
+     */
+    private Transaction view(Chunk chunk, int offset) {
+        Item item = new Item(chunk.fees[offset], symbols.get(chunk.nameIds[offset]),
+                symbols.get(chunk.categoryIds[offset]));
+        return new Transaction(item, LocalDate.ofEpochDay(chunk.epochDays[offset]),
+                chunk.quantities[offset], 0);
+    }
+
+    /**
+     * Finds the chunk and offset of a position using the Fenwick tree
+     *
+     * @param index The position being located
+     *
+     * @return The chunk in the upper 32 bits and the offset in the lower 32 bits
+     */
+    private long locate(int index) {
+        int chunk = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(chunks.length); step > 0; step >>= 1) {
+            int next = chunk + step;
+            if (next <= chunks.length && tree[next] <= remaining) {
+                chunk = next;
+                remaining -= tree[next];
+            }
+        }
+        return ((long) chunk << 32) | remaining;
+    }
+
+    /**
+     * Adds a value to the size of a chunk in the Fenwick tree
+     *
+     * @param chunk The chunk whose size changed
+     * @param delta The change in the chunk's size
+     */
+    private void updateTree(int chunk, int delta) {
+        for (int i = chunk + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @param chunk A chunk of the list
+     *
+     * @return The number of transactions in the chunks before the chunk
+     */
+    private int prefixSize(int chunk) {
+        int total = 0;
+        for (int i = chunk; i > 0; i -= i & -i) {
+            total += tree[i];
+        }
+        return total;
+    }
+
+    /**
+     * Rebuilds the Fenwick tree from the chunk sizes in O(number of chunks)
+     */
+    private void rebuildTree() {
+        tree = new int[chunks.length + 1];
+        for (int i = 1; i < tree.length; i++) {
+            if (i <= numOfChunks) {
+                tree[i] += chunks[i - 1].size;
+            }
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Adds an empty chunk to the end of the list, doubling the chunk array if
+     * it is full
+     */
+    private void addChunk() {
+        if (numOfChunks == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            rebuildTree();
+        }
+        //The first chunk starts small and grows, so small accounts stay small
+        chunks[numOfChunks] = new Chunk(numOfChunks == 0 ? FIRST_CHUNK_CAPACITY : CHUNK_CAPACITY,
+                nextRowId);
+        numOfChunks++;
+    }
+
+    /**
+     * Moves every transaction into as few chunks as possible once most chunk
+     * slots are empty. This only happens after many removals, so its O(n) cost
+     * is spread across them
+     */
+    private void compact() {
+        Chunk[] oldChunks = chunks;
+        int oldNumOfChunks = numOfChunks;
+        int capacity = INITIAL_NUM_OF_CHUNKS;
+        while (capacity * CHUNK_CAPACITY < size) {
+            capacity *= 2;
+        }
+        chunks = new Chunk[capacity];
+        numOfChunks = 0;
+        for (int i = 0; i < oldNumOfChunks; i++) {
+            for (int j = 0; j < oldChunks[i].size; j++) {
+                if (numOfChunks == 0 || chunks[numOfChunks - 1].size == CHUNK_CAPACITY) {
+                    chunks[numOfChunks++] = new Chunk(CHUNK_CAPACITY, oldChunks[i].rowIds[j]);
+                }
+                chunks[numOfChunks - 1].copyFrom(oldChunks[i], j);
+            }
+        }
+        rebuildTree();
+    }
+
+    /**
+     * @param index The position being checked
+     *
+     * @throws IndexOutOfBoundsException if the position is not in the list
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for size " + size);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package finance;
+
+//imports
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Creates a compiled search over the transactions of an account.
+ * <p>
+ * A query is written as conditions joined by "and", optionally followed by an
+ * ordering and a limit, for example
+ * {@code category = "Food" and fee > 20 and date >= 2021-01-01 order by fee desc limit 50}.
+ * The fields name, category, fee, quantity, date, and cost (fee times quantity)
+ * can be compared with =, !=, &lt;, &lt;=, &gt;, and &gt;=. Values containing
+ * spaces are quoted.
+ * <p>
+ * The text is parsed once into a predicate and a comparator. The bounds placed
+ * on the date and an exact category are also kept, so the account can find
+ * candidate transactions with its date or category index instead of testing
+ * every transaction
+ *
+ * @author Dylan Munro
+ */
+public class TransactionQuery {
+
+    //Private Constants
+    private static final String[] FIELDS = {"name", "category", "fee", "quantity", "date", "cost"};
+    private static final int NAME = 0;
+    private static final int CATEGORY = 1;
+    private static final int FEE = 2;
+    private static final int QUANTITY = 3;
+    private static final int DATE = 4;
+    private static final int COST = 5;
+    private static final String[] OPERATORS = {"=", "!=", "<", "<=", ">", ">="};
+
+    //Public Constants
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final String text;
+    private Predicate<Transaction> predicate = transaction -> true;
+    private Comparator<Transaction> comparator; //null if results keep transaction order
+    private int limit = NO_LIMIT;
+    private LocalDate startDate = LocalDate.MIN;
+    private LocalDate endDate = LocalDate.MAX;
+    private String category; //null unless an exact category is required
+
+    /**
+     * @param text The text of the query
+     */
+    private TransactionQuery(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses and compiles the text of a query
+     *
+     * @param text The text of the query
+     *
+     * @return The compiled query
+     *
+     * @throws InvalidRequestException if the text is not a valid query
+     */
+    public static TransactionQuery compile(String text) throws InvalidRequestException {
+        TransactionQuery query = new TransactionQuery(text);
+        List<String> tokens = tokenize(text);
+        int position = 0;
+        while (position < tokens.size() && !isKeyword(tokens, position, "order")
+                && !isKeyword(tokens, position, "limit")) {
+            if (position > 0) {
+                expectKeyword(tokens, position++, "and");
+            }
+            query.addCondition(token(tokens, position), token(tokens, position + 1),
+                    token(tokens, position + 2));
+            position += 3;
+        }
+        if (isKeyword(tokens, position, "order")) {
+            expectKeyword(tokens, position + 1, "by");
+            position += 2;
+            boolean hasNextField = true;
+            while (hasNextField) {
+                int field = parseField(token(tokens, position++));
+                boolean isDescending = isKeyword(tokens, position, "desc");
+                if (isDescending || isKeyword(tokens, position, "asc")) {
+                    position++;
+                }
+                query.addOrdering(field, isDescending);
+                hasNextField = isKeyword(tokens, position, ",");
+                if (hasNextField) {
+                    position++;
+                }
+            }
+        }
+        if (isKeyword(tokens, position, "limit")) {
+            try {
+                query.limit = Integer.parseInt(token(tokens, position + 1));
+            } catch (NumberFormatException e) {
+                throw new InvalidRequestException("The limit of a query must be a whole number");
+            }
+            if (query.limit < 0) {
+                throw new InvalidRequestException("The limit of a query must not be negative");
+            }
+            position += 2;
+        }
+        if (position < tokens.size()) {
+            throw new InvalidRequestException("Unexpected \"" + tokens.get(position)
+                    + "\" in the query");
+        }
+        return query;
+    }
+
+    /**
+     * @param transaction A transaction
+     *
+     * @return true if the transaction satisfies every condition of the query
+     */
+    public boolean test(Transaction transaction) {
+        return predicate.test(transaction);
+    }
+
+    /**
+     * @return The order of the results, or null if results are listed in the
+     * order of the transactions
+     */
+    public Comparator<Transaction> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * @return The largest number of results, or {@link #NO_LIMIT}
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return The earliest date a result may have
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @return The latest date a result may have
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @return The category every result must have, or null if the query does
+     * not require a single category
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return The text the query was compiled from
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * Compiles a condition into the predicate, and narrows the date range or
+     * category used to find candidate transactions
+     *
+     * @param fieldName The field being compared
+     * @param operator The comparison operator
+     * @param valueText The value the field is compared against
+     *
+     * @throws InvalidRequestException
+     */
+    private void addCondition(String fieldName, String operator, String valueText)
+            throws InvalidRequestException {
+        int field = parseField(fieldName);
+        int op = indexOf(OPERATORS, operator);
+        if (op < 0) {
+            throw new InvalidRequestException("\"" + operator + "\" is not a comparison operator");
+        }
+        Comparable<Object> value = parseValue(field, valueText);
+        Function<Transaction, Comparable<Object>> key = keyOf(field);
+        predicate = predicate.and(transaction -> matches(key.apply(transaction).compareTo(value), op));
+        if (field == DATE) {
+            narrowDates((LocalDate) (Object) value, op);
+        } else if (field == CATEGORY && op == 0) {
+            category = (String) (Object) value;
+        }
+    }
+
+    /**
+     * Adds a field to the ordering of the results. Earlier fields take priority
+     *
+     * @param field The field being ordered by
+     * @param isDescending true if larger values are listed first
+     */
+    private void addOrdering(int field, boolean isDescending) {
+        Comparator<Transaction> next = Comparator.comparing(keyOf(field));
+        next = isDescending ? next.reversed() : next;
+        comparator = comparator == null ? next : comparator.thenComparing(next);
+    }
+
+    /**
+     * Narrows the range of dates a result may have. The range only has to
+     * contain every result, as the predicate still tests each date
+     *
+     * @param date The date in a condition
+     * @param op The position of the condition's operator in OPERATORS
+     */
+    private void narrowDates(LocalDate date, int op) {
+        LocalDate start = startDate;
+        LocalDate end = endDate;
+        switch (OPERATORS[op]) {
+            case "=":
+                start = date;
+                end = date;
+                break;
+            case "<":
+                end = date.equals(LocalDate.MIN) ? date : date.minusDays(1);
+                break;
+            case "<=":
+                end = date;
+                break;
+            case ">":
+                start = date.equals(LocalDate.MAX) ? date : date.plusDays(1);
+                break;
+            case ">=":
+                start = date;
+                break;
+            default:
+                return; //!= excludes a single date, which the predicate handles
+        }
+        startDate = start.isAfter(startDate) ? start : startDate;
+        endDate = end.isBefore(endDate) ? end : endDate;
+    }
+
+    /**
+     * @param comparison The result of comparing a field with a value
+     * @param op The position of the operator in OPERATORS
+     *
+     * @return true if the comparison satisfies the operator
+     */
+    private static boolean matches(int comparison, int op) {
+        switch (op) {
+            case 0:
+                return comparison == 0;
+            case 1:
+                return comparison != 0;
+            case 2:
+                return comparison < 0;
+            case 3:
+                return comparison <= 0;
+            case 4:
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    /**
+     * @param field A field of a transaction
+     *
+     * @return A function reading the field from a transaction
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Transaction, Comparable<Object>> keyOf(int field) {
+        Function<Transaction, ? extends Comparable<?>> key;
+        switch (field) {
+            case NAME:
+                key = transaction -> String.valueOf(transaction.getItem().getName());
+                break;
+            case CATEGORY:
+                key = transaction -> String.valueOf(transaction.getItem().getCategory());
+                break;
+            case FEE:
+                key = transaction -> transaction.getItem().getFee();
+                break;
+            case QUANTITY:
+                key = Transaction::getQuantity;
+                break;
+            case DATE:
+                key = Transaction::getDate;
+                break;
+            default:
+                key = Transaction::getTotalCost;
+                break;
+        }
+        return (Function<Transaction, Comparable<Object>>) (Function<Transaction, ?>) key;
+    }
+
+    /**
+     * Parses a value of the type held by a field
+     *
+     * @param field The field the value is compared with
+     * @param valueText The text of the value
+     *
+     * @return The parsed value
+     *
+     * @throws InvalidRequestException if the value is not of the field's type
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> parseValue(int field, String valueText)
+            throws InvalidRequestException {
+        Comparable<?> value;
+        try {
+            switch (field) {
+                case FEE:
+                case COST:
+                    value = Money.parse(valueText);
+                    break;
+                case QUANTITY:
+                    value = Integer.parseInt(valueText);
+                    break;
+                case DATE:
+                    value = LocalDate.parse(valueText);
+                    break;
+                default:
+                    value = valueText;
+                    break;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new InvalidRequestException("\"" + valueText + "\" is not a valid "
+                    + FIELDS[field]);
+        }
+        return (Comparable<Object>) value;
+    }
+
+    /**
+     * @param fieldName The name of a field
+     *
+     * @return The field
+     *
+     * @throws InvalidRequestException if no field has the name
+     */
+    private static int parseField(String fieldName) throws InvalidRequestException {
+        int field = indexOf(FIELDS, fieldName.toLowerCase());
+        if (field < 0) {
+            throw new InvalidRequestException("\"" + fieldName + "\" is not a field. Fields are "
+                    + String.join(", ", FIELDS));
+        }
+        return field;
+    }
+
+    /**
+     * Splits the text of a query into words, quoted values, operators, and commas
+     *
+     * @param text The text of the query
+     *
+     * @return The tokens of the query, with quotes removed from quoted values
+     *
+     * @throws InvalidRequestException if a quoted value is never closed
+     */
+    private static List<String> tokenize(String text) throws InvalidRequestException {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '"' || c == '\'') {
+                int close = text.indexOf(c, i + 1);
+                if (close < 0) {
+                    throw new InvalidRequestException("The quoted value starting at position "
+                            + i + " is never closed");
+                }
+                tokens.add(text.substring(i + 1, close));
+                i = close + 1;
+                continue;
+            } else if (c == ',') {
+                i++;
+            } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+                i++;
+                if (i < text.length() && text.charAt(i) == '=') {
+                    i++;
+                }
+            } else {
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && ",=!<>\"'".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+            }
+            tokens.add(text.substring(start, i));
+        }
+        return tokens;
+    }
+
+    /**
+     * @param tokens The tokens of the query
+     * @param position The position of a token
+     *
+     * @return The token at the position
+     *
+     * @throws InvalidRequestException if the query ends before the position
+     */
+    private static String token(List<String> tokens, int position) throws InvalidRequestException {
+        if (position >= tokens.size()) {
+            throw new InvalidRequestException("The query ended unexpectedly");
+        }
+        return tokens.get(position);
+    }
+
+    /**
+     * @param tokens The tokens of the query
+     * @param position The position of a token
+     * @param keyword A keyword
+     *
+     * @return true if the token at the position is the keyword, ignoring case
+     */
+    private static boolean isKeyword(List<String> tokens, int position, String keyword) {
+        return position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword);
+    }
+
+    /**
+     * @param tokens The tokens of the query
+     * @param position The position of a token
+     * @param keyword The keyword which must be at the position
+     *
+     * @throws InvalidRequestException if the token is not the keyword
+     */
+    private static void expectKeyword(List<String> tokens, int position, String keyword)
+            throws InvalidRequestException {
+        if (!isKeyword(tokens, position, keyword)) {
+            throw new InvalidRequestException("Expected \"" + keyword + "\" but found \""
+                    + (position < tokens.size() ? tokens.get(position) : "the end of the query")
+                    + "\"");
+        }
+    }
+
+    /**
+     * @param values An array of strings
+     * @param value A string
+     *
+     * @return The position of the string in the array, or -1 if it is not present
+     */
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
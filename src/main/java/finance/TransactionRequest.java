@@ -11,12 +11,23 @@ import java.time.LocalDate;
 public class TransactionRequest extends Request{
     
     private String itemName;
-    private double itemFee;
+    private long itemFee;
     private String itemCategory;
     private LocalDate date;
     private int quantity;
     
     private int transactionNumber;
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    private TransactionQuery query;
+
+    private int cursor;
+    private int pageSize;
+
+    private int count;
+    private boolean isAllAccounts;
     
     /**
      * Generates a Request capable of building a new Transaction
@@ -24,16 +35,26 @@ public class TransactionRequest extends Request{
      * @param action The keyword describing how the user wishes to change the
      * transaction
      * @param itemName The name of the item involved in the transaction
-     * @param itemFee The fee associated with the item involved in the transaction
+     * @param itemFee The fee associated with the item involved in the transaction, in minor units
      * @param itemCategory The broad category which the item involved in the transaction belongs to
      * @param date The date of the transaction
      * @param quantity The number of items involved in the transaction
      *
-     * @throws InvalidRequestException
+     * @throws InvalidRequestException if the date is missing or outside of
+     * the range a transaction may have, or if the fee multiplied by the
+     * quantity is too large to be held in minor units
      */        
-    public TransactionRequest(String action, String itemName, double itemFee,
+    public TransactionRequest(String action, String itemName, long itemFee,
             String itemCategory, LocalDate date, int quantity) throws InvalidRequestException {
         super(action, true);
+        if (date == null || !Transaction.isSupportedDate(date)) {
+            throw new InvalidRequestException("The date " + date + " must be between "
+                    + Transaction.MIN_DATE + " and " + Transaction.MAX_DATE);
+        }
+        if (!Transaction.isSupportedCost(itemFee, quantity)) {
+            throw new InvalidRequestException("The total cost of " + quantity + " items costing "
+                    + Money.toString(itemFee) + " is too large");
+        }
         this.itemName = itemName;
         this.itemFee = itemFee;
         this.itemCategory = itemCategory;
@@ -55,11 +76,103 @@ public class TransactionRequest extends Request{
         this.transactionNumber = transactionNumber;
     }
 
+    /**
+     * Generates a Request acting on every Transaction in a category
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param itemCategory The broad category the transactions belong to
+     *
+     * @throws InvalidRequestException
+     */
+    public TransactionRequest(String action, String itemCategory) throws InvalidRequestException {
+        super(action, true);
+        this.itemCategory = itemCategory;
+    }
+
+    /**
+     * Generates a Request acting on every Transaction between two dates
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param startDate The first date in the range
+     * @param endDate The last date in the range
+     *
+     * @throws InvalidRequestException
+     */
+    public TransactionRequest(String action, LocalDate startDate, LocalDate endDate)
+            throws InvalidRequestException {
+        super(action, true);
+        if (startDate.isAfter(endDate)) {
+            throw new InvalidRequestException("The date " + startDate
+                    + " must not be after the date " + endDate);
+        }
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Generates a Request acting on every Transaction satisfying a query
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param query The compiled query the transactions must satisfy
+     *
+     * @throws InvalidRequestException
+     */
+    public TransactionRequest(String action, TransactionQuery query) throws InvalidRequestException {
+        super(action, true);
+        this.query = query;
+    }
+
+    /**
+     * Generates a Request acting on a page of Transactions
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param cursor {@link Account#FIRST_PAGE}, or the cursor returned for the previous page
+     * @param pageSize The largest number of transactions in the page
+     *
+     * @throws InvalidRequestException
+     */
+    public TransactionRequest(String action, int cursor, int pageSize) throws InvalidRequestException {
+        super(action, true);
+        if (cursor < 0) {
+            throw new InvalidRequestException("The cursor " + cursor + " is not valid");
+        }
+        if (pageSize < 1) {
+            throw new InvalidRequestException("A page must hold at least one transaction");
+        }
+        this.cursor = cursor;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Generates a Request for the highest ranked transactions or items
+     *
+     * @param action The keyword describing how the user wishes to view the
+     * transactions
+     * @param count The largest number of transactions or items listed
+     * @param isAllAccounts true to rank every account, false to rank only the
+     * current active account
+     *
+     * @throws InvalidRequestException
+     */
+    public TransactionRequest(String action, int count, boolean isAllAccounts)
+            throws InvalidRequestException {
+        super(action, true);
+        if (count < 1) {
+            throw new InvalidRequestException("At least one result must be requested");
+        }
+        this.count = count;
+        this.isAllAccounts = isAllAccounts;
+    }
+
     public String getItemName() {
         return itemName;
     }
 
-    public double getItemFee() {
+    public long getItemFee() {
         return itemFee;
     }
 
@@ -75,6 +188,56 @@ public class TransactionRequest extends Request{
         return quantity;
     }
     
+    /**
+     * @return The first date in the range of a date range request
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @return The last date in the range of a date range request
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @return The compiled query of a query request
+     */
+    public TransactionQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The cursor of the first transaction in the page of a page request
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return The largest number of transactions in the page of a page request
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return The largest number of results of a ranking request
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if a ranking request covers every account, false if it only
+     * covers the current active account
+     */
+    public boolean isAllAccounts() {
+        return isAllAccounts;
+    }
+
     /**
      * 
      * @return The unique identifier referencing the Transaction
@@ -0,0 +1,166 @@
+package finance;
+
+//imports
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates approximate statistics of the transactions of an account which take
+ * constant memory however many transactions the account has.
+ * <p>
+ * The number of distinct items is estimated by a {@link HyperLogLog}, fee
+ * percentiles by a {@link QuantileSketch}, and the most common categories by a
+ * {@link CountMinSketch} together with a small set of candidate categories.
+ * Every statistic is updated in O(1) as transactions are added and removed,
+ * except that the distinct item count cannot forget an item once added
+ *
+ * @author Dylan Munro
+ */
+public class TransactionSketch {
+
+    //Public Constants
+    public static final double HEAVY_HITTER_FRACTION = 0.05; //Share of transactions reported
+
+    //Private Constants
+    private static final int MAX_CANDIDATES = (int) Math.ceil(2 / HEAVY_HITTER_FRACTION);
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+    private final SymbolTable symbols = SymbolTable.getGlobal();
+    private final HyperLogLog distinctItems = new HyperLogLog();
+    private final QuantileSketch fees = new QuantileSketch();
+    private final CountMinSketch categories = new CountMinSketch();
+    private final int[] candidates = new int[MAX_CANDIDATES]; //Category ids
+    private int numOfCandidates;
+
+    /**
+     * Adds a transaction to every statistic
+     *
+     * @param transaction The transaction being added
+     */
+    public void add(Transaction transaction) {
+        Item item = transaction.getItem();
+        distinctItems.add(symbols.idOf(item.getName()));
+        fees.add(item.getFee());
+        int category = symbols.idOf(item.getCategory());
+        categories.add(category, 1);
+        offerCandidate(category);
+    }
+
+    /**
+     * Removes a transaction from the fee percentiles and category counts
+     *
+     * @param transaction The transaction being removed
+     */
+    public void remove(Transaction transaction) {
+        Item item = transaction.getItem();
+        fees.remove(item.getFee());
+        categories.add(symbols.idOf(item.getCategory()), -1);
+    }
+
+    /**
+     * @return The estimated number of distinct item names ever added, within
+     * {@link HyperLogLog#STANDARD_ERROR} of the true number for one standard deviation
+     */
+    public long getNumOfDistinctItems() {
+        return distinctItems.estimate();
+    }
+
+    /**
+     * @param quantile A quantile between 0 and 1
+     *
+     * @return The estimated fee at the quantile in minor units, within
+     * {@link QuantileSketch#RELATIVE_ACCURACY} of a fee at that rank
+     */
+    public long getFeeQuantile(double quantile) {
+        return fees.getQuantile(quantile);
+    }
+
+    /**
+     * Finds the categories of at least HEAVY_HITTER_FRACTION of the transactions
+     *
+     * @return The heavy hitter categories, most common first
+     */
+    public List<String> getHeavyHitters() {
+        BoundedHeap heap = new BoundedHeap(numOfCandidates);
+        for (int i = 0; i < numOfCandidates; i++) {
+            long estimate = categories.estimate(candidates[i]);
+            if (estimate > 0 && estimate >= HEAVY_HITTER_FRACTION * categories.getTotal()) {
+                heap.offer(estimate, candidates[i]);
+            }
+        }
+        List<String> heavyHitters = new ArrayList<>(heap.size());
+        for (int id : heap.getValues()) {
+            heavyHitters.add(symbols.get(id));
+        }
+        return heavyHitters;
+    }
+
+    /**
+     * @param category The name of a category
+     *
+     * @return The estimated number of transactions in the category, which may
+     * be too large by up to {@link CountMinSketch#ERROR} of the transactions
+     */
+    public long getNumOfTransactionsIn(String category) {
+        return categories.estimate(symbols.idOf(category));
+    }
+
+    /**
+     * @return Every statistic with its error bound, formatted as a string
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Distinct items: about ").append(getNumOfDistinctItems())
+                .append(String.format(" (within %.1f%% with 95%% confidence)\n",
+                        200 * HyperLogLog.STANDARD_ERROR));
+        if (fees.getCount() > 0) {
+            sb.append(String.format("Fee percentiles (within %.0f%%):\n",
+                    100 * QuantileSketch.RELATIVE_ACCURACY));
+            for (double current : PERCENTILES) {
+                sb.append(String.format("p%.0f: %s\n", 100 * current,
+                        Money.toString(getFeeQuantile(current))));
+            }
+        }
+        sb.append(String.format("Categories of at least %.0f%% of transactions "
+                + "(counts at most %.2f%% of transactions too high with %.0f%% confidence):\n",
+                100 * HEAVY_HITTER_FRACTION, 100 * CountMinSketch.ERROR,
+                100 * CountMinSketch.CONFIDENCE));
+        for (String current : getHeavyHitters()) {
+            sb.append(current).append(": about ").append(getNumOfTransactionsIn(current))
+                    .append(" transactions\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Keeps a category as a candidate heavy hitter. Once the candidates are
+     * full, a category replaces the candidate with the smallest estimated count
+     * if its own estimated count is larger
+     *
+     * @param category The id of the category
+     */
+    private void offerCandidate(int category) {
+        for (int i = 0; i < numOfCandidates; i++) {
+            if (candidates[i] == category) {
+                return;
+            }
+        }
+        if (numOfCandidates < MAX_CANDIDATES) {
+            candidates[numOfCandidates++] = category;
+            return;
+        }
+        int smallest = 0;
+        long smallestEstimate = Long.MAX_VALUE;
+        for (int i = 0; i < numOfCandidates; i++) {
+            long estimate = categories.estimate(candidates[i]);
+            if (estimate < smallestEstimate) {
+                smallest = i;
+                smallestEstimate = estimate;
+            }
+        }
+        if (categories.estimate(category) > smallestEstimate) {
+            candidates[smallest] = category;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package finance;
+
+//imports
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the range sums of {@link DailySpending} against sums over every
+ * transaction, with days added in and out of order
+ *
+ * @author Dylan Munro
+ */
+public class DailySpendingTest {
+
+    //Private Constants
+    private static final int FIRST_DAY = 18000;
+    private static final int NUM_OF_DAYS = 300;
+
+    @Test
+    public void rangeSumsMatchAfterAddsAndRemoves() {
+        Random random = new Random(3);
+        DailySpending spending = new DailySpending();
+        List<long[]> transactions = new ArrayList<>(); //Each holds an epoch day and a cost
+        for (int i = 0; i < 2000; i++) {
+            //Mostly appended days, with some days before the latest forcing a rebuild
+            int day = i % 10 == 0 ? FIRST_DAY + random.nextInt(NUM_OF_DAYS)
+                    : FIRST_DAY + i * NUM_OF_DAYS / 2000;
+            long cost = random.nextInt(10000) - 1000;
+            spending.add(day, cost);
+            transactions.add(new long[] {day, cost});
+            if (i % 5 == 4) {
+                long[] removed = transactions.remove(random.nextInt(transactions.size()));
+                spending.remove((int) removed[0], removed[1]);
+            }
+        }
+        assertRangeSums(transactions, spending, random);
+    }
+
+    @Test
+    public void bulkConstructorMatchesRepeatedAdds() {
+        Random random = new Random(5);
+        int[] epochDays = new int[1500];
+        long[] costs = new long[epochDays.length];
+        List<long[]> transactions = new ArrayList<>();
+        for (int i = 0; i < epochDays.length; i++) {
+            epochDays[i] = FIRST_DAY + random.nextInt(NUM_OF_DAYS);
+            costs[i] = random.nextInt(5000);
+            transactions.add(new long[] {epochDays[i], costs[i]});
+        }
+        assertRangeSums(transactions, new DailySpending(epochDays, costs), random);
+    }
+
+    @Test
+    public void distantDaysSumAcrossRange() {
+        DailySpending spending = new DailySpending();
+        int first = Transaction.epochDay(Transaction.MIN_DATE);
+        int last = Transaction.epochDay(Transaction.MAX_DATE);
+        spending.add(last, 5);
+        spending.add(first, 7);
+        assertEquals(2, spending.getCount(first, last));
+        assertEquals(12, spending.getTotalCost(first, last));
+        assertEquals(0, spending.getCount(first + 1, last - 1));
+        assertEquals(0, spending.getTotalCost(last, first));
+    }
+
+    /**
+     * Asserts the count and total cost of every range of days, including days
+     * before and after every transaction
+     *
+     * @param transactions The epoch day and cost of each transaction added
+     * @param spending The prefix sums being tested
+     * @param random Chooses the ranges checked
+     */
+    private static void assertRangeSums(List<long[]> transactions, DailySpending spending,
+            Random random) {
+        for (int i = 0; i < 500; i++) {
+            int start = FIRST_DAY - 5 + random.nextInt(NUM_OF_DAYS + 10);
+            int end = start + random.nextInt(NUM_OF_DAYS / 2);
+            int count = 0;
+            long cost = 0;
+            for (long[] transaction : transactions) {
+                if (transaction[0] >= start && transaction[0] <= end) {
+                    count++;
+                    cost += transaction[1];
+                }
+            }
+            assertEquals(count, spending.getCount(start, end));
+            assertEquals(cost, spending.getTotalCost(start, end));
+        }
+    }
+}
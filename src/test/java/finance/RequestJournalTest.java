@@ -0,0 +1,146 @@
+package finance;
+
+//imports
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a journal replays every complete record and discards a record
+ * torn by a crash part way through writing it
+ *
+ * @author Dylan Munro
+ */
+public class RequestJournalTest {
+
+    //Private Constants
+    private static final String ACCOUNT_NAME = "Chequing";
+    private static final LocalDate DATE = LocalDate.of(2021, 3, 14);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayDiscardsTornFinalRecord() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("journal.bin");
+        RequestJournal journal = new RequestJournal(path);
+        journal.replay(SnapshotWriter.NO_JOURNAL_POSITION, (accountName, request) -> { });
+        long[] positions = new long[3];
+        for (int i = 1; i <= 3; i++) {
+            positions[i - 1] = journal.append(RequestJournal.encode(ACCOUNT_NAME,
+                    addTransaction("Item " + i, i)));
+        }
+        journal.syncAll();
+        journal.close();
+        long completeSize = Files.size(path);
+        tear(path);
+
+        List<String> replayed = new ArrayList<>();
+        journal = new RequestJournal(path);
+        int numReplayed = journal.replay(SnapshotWriter.NO_JOURNAL_POSITION, (accountName, request) ->
+                replayed.add(((TransactionRequest) request).getItemName()));
+        assertEquals(2, numReplayed);
+        assertEquals(List.of("Item 1", "Item 2"), replayed);
+        assertEquals(positions[1], journal.getLastPosition());
+        assertTrue(journal.size() < completeSize);
+
+        //The torn bytes are gone, so a record appended after replay is read back
+        journal.append(RequestJournal.encode(ACCOUNT_NAME, addTransaction("Item 4", 4)));
+        journal.syncAll();
+        journal.close();
+        replayed.clear();
+        journal = new RequestJournal(path);
+        numReplayed = journal.replay(SnapshotWriter.NO_JOURNAL_POSITION, (accountName, request) ->
+                replayed.add(((TransactionRequest) request).getItemName()));
+        journal.close();
+        assertEquals(3, numReplayed);
+        assertEquals(List.of("Item 1", "Item 2", "Item 4"), replayed);
+    }
+
+    @Test
+    public void replaySkipsRecordsInSnapshot() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("journal.bin");
+        RequestJournal journal = new RequestJournal(path);
+        journal.replay(SnapshotWriter.NO_JOURNAL_POSITION, (accountName, request) -> { });
+        long[] positions = new long[4];
+        for (int i = 1; i <= 4; i++) {
+            positions[i - 1] = journal.append(RequestJournal.encode(ACCOUNT_NAME,
+                    addTransaction("Item " + i, i)));
+        }
+        journal.syncAll();
+        journal.close();
+
+        List<String> replayed = new ArrayList<>();
+        journal = new RequestJournal(path);
+        int numReplayed = journal.replay(positions[1], (accountName, request) ->
+                replayed.add(((TransactionRequest) request).getItemName()));
+        journal.close();
+        assertEquals(2, numReplayed);
+        assertEquals(List.of("Item 3", "Item 4"), replayed);
+    }
+
+    @Test
+    public void reopenedManagerKeepsCompleteRequests() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("data");
+        AccountManager manager = new AccountManager();
+        manager.openJournal(directory);
+        manager.executeRequest(new AccountRequest("add account", ACCOUNT_NAME));
+        for (int i = 1; i <= 5; i++) {
+            manager.executeRequest(ACCOUNT_NAME, addTransaction("Item " + i, i));
+        }
+        manager.executeRequest(ACCOUNT_NAME, new TransactionRequest("delete transaction", 1));
+        manager.executeRequest(ACCOUNT_NAME, addTransaction("Item 6", 6));
+        manager.closeJournal();
+        tear(directory.resolve("journal.bin"));
+
+        AccountManager reopened = new AccountManager();
+        reopened.openJournal(directory);
+        Path copy = folder.getRoot().toPath().resolve("copy.snap");
+        reopened.saveSnapshot(copy);
+        reopened.closeJournal();
+        List<Account> accounts = new SnapshotReader().load(copy);
+        assertEquals(1, accounts.size());
+        List<Transaction> transactions = accounts.get(0).getTransactions();
+        assertEquals(4, transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals("Item " + (i + 2), transactions.get(i).getItem().getName());
+            assertEquals(i + 2, transactions.get(i).getQuantity());
+        }
+    }
+
+    /**
+     * Cuts the last few bytes off a file, as a crash while writing its final record would
+     *
+     * @param path The file being torn
+     *
+     * @throws IOException
+     */
+    private static void tear(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+    }
+
+    /**
+     * @param itemName The name of the item bought
+     * @param quantity The number of items bought
+     *
+     * @return A request adding a transaction of the item
+     *
+     * @throws InvalidRequestException
+     */
+    private static TransactionRequest addTransaction(String itemName, int quantity)
+            throws InvalidRequestException {
+        return new TransactionRequest("add transaction", itemName, 250, "Groceries", DATE, quantity);
+    }
+}
@@ -0,0 +1,108 @@
+package finance;
+
+//imports
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that accounts written by {@link SnapshotWriter} are read back
+ * unchanged by {@link SnapshotReader}, whether loaded eagerly or lazily
+ *
+ * @author Dylan Munro
+ */
+public class SnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripKeepsEveryTransaction() throws Exception {
+        List<Account> accounts = createAccounts();
+        Path path = folder.getRoot().toPath().resolve("accounts.snap");
+        new SnapshotWriter().write(accounts, path);
+
+        SnapshotReader reader = new SnapshotReader();
+        assertTrue(SnapshotReader.isSnapshot(path));
+        assertAccountsEqual(accounts, reader.load(path));
+        assertEquals(SnapshotWriter.NO_JOURNAL_POSITION, reader.getJournalPosition());
+    }
+
+    @Test
+    public void lazyRoundTripHydratesEveryTransaction() throws Exception {
+        List<Account> accounts = createAccounts();
+        Path path = folder.getRoot().toPath().resolve("accounts.snap");
+        new SnapshotWriter().write(accounts, 42, path);
+
+        SnapshotReader reader = new SnapshotReader();
+        List<Account> loaded = reader.load(path, true);
+        assertEquals(42, reader.getJournalPosition());
+        for (Account account : loaded) {
+            assertFalse(account.isHydrated());
+        }
+        assertAccountsEqual(accounts, loaded);
+    }
+
+    @Test
+    public void truncatedSnapshotIsRejected() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("accounts.snap");
+        new SnapshotWriter().write(createAccounts(), path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        assertThrows(CorruptJSONObjectException.class, () -> new SnapshotReader().load(path));
+    }
+
+    /**
+     * @return Accounts holding names outside of ASCII, extreme dates and costs,
+     * and an account without transactions
+     */
+    private static List<Account> createAccounts() {
+        Account chequing = new Account("Chequing");
+        for (int i = 0; i < 1000; i++) {
+            chequing.addTransaction(new Transaction("Item " + i, 100 + i, "Category " + (i % 7),
+                    LocalDate.of(2020, 1, 1).plusDays(i), 1 + i % 5));
+        }
+        Account savings = new Account("Épargne €");
+        savings.addTransaction(new Transaction("Café ☕", Long.MAX_VALUE, "Food",
+                Transaction.MIN_DATE, 1));
+        savings.addTransaction(new Transaction("Refund", -1999, "Other", Transaction.MAX_DATE, 3));
+        return List.of(chequing, savings, new Account("Empty"));
+    }
+
+    /**
+     * Asserts that two lists of accounts hold the same transactions in the same order
+     *
+     * @param expected The accounts written
+     * @param actual The accounts read
+     */
+    private static void assertAccountsEqual(List<Account> expected, List<Account> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getNumOfTransactions(), actual.get(i).getNumOfTransactions());
+            List<Transaction> expectedTransactions = expected.get(i).getTransactions();
+            List<Transaction> actualTransactions = actual.get(i).getTransactions();
+            assertEquals(expectedTransactions.size(), actualTransactions.size());
+            for (int j = 0; j < expectedTransactions.size(); j++) {
+                Transaction expectedTransaction = expectedTransactions.get(j);
+                Transaction actualTransaction = actualTransactions.get(j);
+                assertEquals(expectedTransaction.getItem().getName(), actualTransaction.getItem().getName());
+                assertEquals(expectedTransaction.getItem().getFee(), actualTransaction.getItem().getFee());
+                assertEquals(expectedTransaction.getItem().getCategory(),
+                        actualTransaction.getItem().getCategory());
+                assertEquals(expectedTransaction.getDate(), actualTransaction.getDate());
+                assertEquals(expectedTransaction.getQuantity(), actualTransaction.getQuantity());
+            }
+        }
+    }
+}
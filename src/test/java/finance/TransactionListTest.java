@@ -0,0 +1,171 @@
+package finance;
+
+//imports
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests {@link TransactionList} against a plain list of the same transactions,
+ * with enough transactions to fill many chunks and trigger compaction
+ *
+ * @author Dylan Munro
+ */
+public class TransactionListTest {
+
+    //Private Constants
+    private static final int NUM_OF_TRANSACTIONS = 5000; //About ten full chunks
+    private static final LocalDate FIRST_DATE = LocalDate.of(2019, 6, 1);
+
+    @Test
+    public void addThenGetAcrossChunks() {
+        TransactionList list = new TransactionList();
+        List<Transaction> expected = new ArrayList<>();
+        List<Integer> rowIds = new ArrayList<>();
+        addTransactions(list, expected, rowIds, NUM_OF_TRANSACTIONS);
+        assertMatches(expected, rowIds, list);
+        assertEquals(NUM_OF_TRANSACTIONS - 1, list.getLastRowId());
+    }
+
+    @Test
+    public void removeAndCompactKeepOrderAndRowIds() {
+        Random random = new Random(7);
+        TransactionList list = new TransactionList();
+        List<Transaction> expected = new ArrayList<>();
+        List<Integer> rowIds = new ArrayList<>();
+        addTransactions(list, expected, rowIds, NUM_OF_TRANSACTIONS);
+        List<Integer> removedRowIds = new ArrayList<>();
+
+        //Removing most transactions shrinks the list below a quarter of its chunks, compacting it
+        while (expected.size() > 50) {
+            int index = random.nextInt(expected.size());
+            Transaction removed = list.remove(index);
+            assertSameFields(expected.remove(index), removed);
+            removedRowIds.add(rowIds.remove(index));
+            if (expected.size() % 250 == 0) {
+                assertMatches(expected, rowIds, list);
+            }
+        }
+        assertMatches(expected, rowIds, list);
+        for (int rowId : removedRowIds) {
+            assertEquals(-1, list.indexOfRow(rowId));
+            int position = 0;
+            while (position < rowIds.size() && rowIds.get(position) < rowId) {
+                position++;
+            }
+            assertEquals(position, list.indexOfRowAtLeast(rowId));
+        }
+
+        //Row ids keep increasing after compaction
+        addTransactions(list, expected, rowIds, 1000);
+        assertMatches(expected, rowIds, list);
+    }
+
+    @Test
+    public void summarizeRangesAcrossChunkBoundaries() {
+        Random random = new Random(11);
+        TransactionList list = new TransactionList();
+        List<Transaction> expected = new ArrayList<>();
+        addTransactions(list, expected, new ArrayList<>(), NUM_OF_TRANSACTIONS);
+        //Uneven deletions leave chunks of different sizes, so positions depend on the Fenwick tree
+        for (int i = 0; i < 600; i++) {
+            int index = random.nextInt(expected.size() / 3);
+            list.remove(index);
+            expected.remove(index);
+        }
+        int[][] ranges = {{0, expected.size()}, {0, 1}, {500, 530}, {1000, 2100},
+            {expected.size() - 1, expected.size()}, {7, 7}};
+        for (int[] range : ranges) {
+            assertSummary(expected, list, range[0], range[1]);
+        }
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(expected.size() + 1);
+            int to = from + random.nextInt(expected.size() - from + 1);
+            assertSummary(expected, list, from, to);
+        }
+    }
+
+    /**
+     * Adds transactions with varied fields to both lists
+     *
+     * @param list The list being tested
+     * @param expected The plain list of the same transactions
+     * @param rowIds The row id expected for each transaction
+     * @param count The number of transactions added
+     */
+    private static void addTransactions(TransactionList list, List<Transaction> expected,
+            List<Integer> rowIds, int count) {
+        for (int i = 0; i < count; i++) {
+            int n = expected.size() + i * 31;
+            Transaction transaction = new Transaction("Item " + (n % 97), 1 + n % 1000,
+                    "Category " + (n % 5), FIRST_DATE.plusDays(n % 400), 1 + n % 9);
+            list.add(transaction);
+            expected.add(transaction);
+            rowIds.add(list.getLastRowId());
+        }
+    }
+
+    /**
+     * Asserts that the list holds the expected transactions and row ids, read by
+     * position, by iteration and in bulk
+     *
+     * @param expected The transactions expected in order
+     * @param rowIds The row id expected for each transaction
+     * @param list The list being tested
+     */
+    private static void assertMatches(List<Transaction> expected, List<Integer> rowIds,
+            TransactionList list) {
+        assertEquals(expected.size(), list.size());
+        long totalCost = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameFields(expected.get(i), list.get(i));
+            assertEquals((int) rowIds.get(i), list.getRowId(i));
+            assertEquals(i, list.indexOfRow(rowIds.get(i)));
+            totalCost += expected.get(i).getTotalCost();
+        }
+        assertEquals(totalCost, list.totalCost());
+        int from = expected.size() / 3;
+        Iterator<Transaction> iterator = list.iterator(from);
+        for (int i = from; i < expected.size(); i++) {
+            assertSameFields(expected.get(i), iterator.next());
+        }
+        assertFalse(iterator.hasNext());
+    }
+
+    /**
+     * Asserts that a range of the list is summarized the same as the expected transactions
+     *
+     * @param expected The transactions expected in order
+     * @param list The list being tested
+     * @param fromIndex The position of the first transaction summarized
+     * @param toIndex The position after the last transaction summarized
+     */
+    private static void assertSummary(List<Transaction> expected, TransactionList list,
+            int fromIndex, int toIndex) {
+        long totalCost = 0;
+        for (int i = fromIndex; i < toIndex; i++) {
+            totalCost += expected.get(i).getTotalCost();
+        }
+        SpendingReport report = new SpendingReport();
+        list.summarize(fromIndex, toIndex, report);
+        assertEquals(toIndex - fromIndex, report.getNumOfTransactions());
+        assertEquals(totalCost, report.getTotalCost());
+    }
+
+    /**
+     * @param expected The transaction added
+     * @param actual The transaction read back from the list
+     */
+    private static void assertSameFields(Transaction expected, Transaction actual) {
+        assertEquals(expected.getItem().getName(), actual.getItem().getName());
+        assertEquals(expected.getItem().getFee(), actual.getItem().getFee());
+        assertEquals(expected.getItem().getCategory(), actual.getItem().getCategory());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+    }
+}